@@ -0,0 +1,63 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+
+/*  An image kept in video memory for accelerated drawing, as a VolatileImage copied from a master
+ *  BufferedImage. Video memory can be taken back at any time (the screen mode changes, the window
+ *  is minimized on some systems, another program takes the card), so before each frame image()
+ *  validates the copy against the screen being drawn to, copying the master again if it was
+ *  restored or making a new one if it no longer fits; drawing then uses whichever is usable, the
+ *  master when there is no accelerated copy (headless, or the copy can't be made). After drawing,
+ *  lost() says whether the copy was lost part way, so the frame can be drawn again from the master.
+ */
+
+public class AcceleratedImage {
+    private final BufferedImage master;
+    private VolatileImage copy;
+    private boolean unsupported;
+
+    public AcceleratedImage(BufferedImage master){ this.master = master;}
+
+    //the image to draw with onto a graphics: the accelerated copy, made or restored as needed, or the master if there can't be one
+    public Image image(Graphics g){
+        if(unsupported || GraphicsEnvironment.isHeadless() || !(g instanceof Graphics2D))
+            return master;
+        GraphicsConfiguration gc = ((Graphics2D) g).getDeviceConfiguration();
+        try{
+            int state = copy == null ? VolatileImage.IMAGE_INCOMPATIBLE : copy.validate(gc);
+            if(state == VolatileImage.IMAGE_INCOMPATIBLE){
+                if(copy != null)
+                    copy.flush();
+                copy = gc.createCompatibleVolatileImage(master.getWidth(), master.getHeight(), master.getTransparency());
+                copy.validate(gc);
+                state = VolatileImage.IMAGE_RESTORED;
+            }
+            if(state == VolatileImage.IMAGE_RESTORED){
+                //replace the copy's pixels outright (including transparent ones) with the master's
+                Graphics2D cg = copy.createGraphics();
+                cg.setComposite(AlphaComposite.Src);
+                cg.drawImage(master, 0, 0, null);
+                cg.dispose();
+            }
+            return copy.contentsLost() ? master : copy;
+        }catch(RuntimeException e){
+            //no accelerated copy on this pipeline; stay with the master from now on
+            copy = null;
+            unsupported = true;
+            return master;
+        }
+    }
+
+    //whether the accelerated copy was lost since image() (anything drawn from it since may be wrong)
+    public boolean lost(){ return copy != null && copy.contentsLost();}
+
+    //the master image
+    public BufferedImage master(){ return master;}
+
+    //frees the accelerated copy
+    public void flush(){
+        if(copy != null)
+            copy.flush();
+        copy = null;
+    }
+}
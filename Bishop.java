@@ -1,26 +1,11 @@
-import java.util.ArrayList;
 public class Bishop extends GamePiece{
-    private int xInc, yInc;
-
-    public ArrayList<Point> getMoves(ArrayList<GamePiece> friendPieces, ArrayList<GamePiece> foePieces){ return bishopMoves(friendPieces, foePieces);}
-    //constructor, sets location and randomises direction in x and y directions (|x|==|y| meaning 45 degree diagonal travel)
+    public static long moves(Board board, int sq, int color){ return bishopMoves(board, sq, color);}
+    //constructor, sets location
     public Bishop(Point p){
         super(p);
-
-        if(Math.random()>.5)
-            xInc=1;
-        else
-            xInc=-1;
-
-        if(Math.random()>.5)
-            yInc=1;
-        else
-            yInc=-1;
     }
-    //various methods for class identity (2x pawn width/height) (1x pawn speed in X and Y)
+    //various methods for class identity
+    public int getType(){ return Board.BISHOP;}
     public String getID(){ return "B";}
     public int offSet(){return 8;}
-    public void move(){getLocation().incX(xInc).incY(yInc);}
-    public int getWidth(){return 20;}
-    public int getHeight(){return 20;}
 }
\ No newline at end of file
@@ -0,0 +1,518 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/*  Bitboard representation of the chess position. Each color and piece type gets one long with
+ *  bit (y*8 + x) set wherever such a piece stands, and each color gets an occupancy mask, so any
+ *  question about a square is a single bit test instead of a walk through the piece lists.
+ *
+ *  The GamePiece objects standing on each square are kept alongside the bitboards so that the
+ *  black/white ArrayLists used for painting can be derived from it.
+ *
+ *  Moves are played with makeMove and taken back with unmakeMove, which keeps an undo stack of
+ *  the move, the captured piece and the halfmove clock so each step back is O(1).
+ *
+ *  A Zobrist hash of the pieces and side to move is updated with every piece placed, removed or
+ *  moved, so it is kept current through captures, castling and promotion at a few XORs per move.
+ */
+
+public class Board {
+    //colors and piece types (used as indices into the bitboard arrays)
+    public static final int WHITE = 0, BLACK = 1;
+    public static final int PAWN = 0, KNIGHT = 1, BISHOP = 2, ROOK = 3, QUEEN = 4, KING = 5;
+    public static final int EMPTY = -1;
+
+    //game states for a color: still playing, checkmated, stalemated, or stalemated by 50 moves without a capture or pawn move
+    public static final int PLAYING = 0, CHECKMATE = 1, STALEMATE = 2, FIFTY_MOVES = 3;
+
+    //bitboards per color and type, occupancy per color, type on every square, and the piece objects on every square
+    private long[][] pieces;
+    private long[] occupied;
+    private int[] types;
+    private GamePiece[] squares;
+
+    //side to move, moves since the last capture or pawn move (50 means stalemate), and Zobrist hash of the position
+    private int side, halfmoves;
+    private long hash;
+
+    //undo stack: moves played, halfmove clock and hash before each, and the captured and moving piece objects of each
+    private int ply;
+    private int[] undoMoves, undoClocks;
+    private long[] undoHashes;
+    private GamePiece[] undoCaptured, undoMoved;
+
+    //legal moves by origin square for the position with hash legalHash, worked out on first use (for the squares in legalKnown),
+    //so the window's clicks and game-end checks share one legality pass per position; a move or undo changes the hash and drops them
+    private long[] legal = new long[64];
+    private long legalHash, legalKnown;
+
+    //constructors for an empty board or one loaded from lists of white and black pieces
+    public Board(){
+        pieces = new long[2][6];
+        occupied = new long[2];
+        types = new int[64];
+        squares = new GamePiece[64];
+        undoMoves = new int[64];
+        undoClocks = new int[64];
+        undoHashes = new long[64];
+        undoCaptured = new GamePiece[64];
+        undoMoved = new GamePiece[64];
+        clear();
+    }
+    public Board(ArrayList<GamePiece> whitePieces, ArrayList<GamePiece> blackPieces){
+        this();
+        load(whitePieces, blackPieces);
+    }
+
+    //returns the starting position of a game
+    public static Board standard(){
+        Board board = new Board();
+
+        //add pawns
+        for(int i = 0; i < 8; i++){
+            board.put(new Pawn(new Point(i,1), false), BLACK, square(i, 1));
+            board.put(new Pawn(new Point(i,6), true), WHITE, square(i, 6));
+        }
+
+        //add the back ranks (black at the top, white at the bottom)
+        for(int c = 0; c < 2; c++){
+            int y = c == WHITE ? 7 : 0;
+            board.put(new Rook(new Point(0,y)), c, square(0, y));
+            board.put(new Rook(new Point(7,y)), c, square(7, y));
+            board.put(new Knight(new Point(1,y)), c, square(1, y));
+            board.put(new Knight(new Point(6,y)), c, square(6, y));
+            board.put(new Bishop(new Point(2,y)), c, square(2, y));
+            board.put(new Bishop(new Point(5,y)), c, square(5, y));
+            board.put(new Queen(new Point(3,y)), c, square(3, y));
+            board.put(new King(new Point(4,y)), c, square(4, y));
+        }
+        return board;
+    }
+
+    //returns a copy of the position (with its history, so repetitions are still seen) but no piece objects, for searching
+    //without touching the pieces being painted
+    public Board copy(){
+        Board b = new Board();
+        for(int c = 0; c < 2; c++){
+            b.occupied[c] = occupied[c];
+            b.pieces[c] = pieces[c].clone();
+        }
+        b.types = types.clone();
+        b.side = side;
+        b.halfmoves = halfmoves;
+        b.hash = hash;
+        b.ply = ply;
+        b.undoMoves = undoMoves.clone();
+        b.undoClocks = undoClocks.clone();
+        b.undoHashes = undoHashes.clone();
+        b.undoCaptured = new GamePiece[undoMoves.length];
+        b.undoMoved = new GamePiece[undoMoves.length];
+        return b;
+    }
+
+    //returns a position from Forsyth-Edwards Notation (placement from black's side down, side to move, then castling and
+    //en passant fields, which are ignored since neither is tracked here, and the halfmove clock); pieces have no objects
+    public static Board fromFen(String fen){
+        String[] fields = fen.trim().split("\\s+");
+        Board board = new Board();
+        String[] rows = fields[0].split("/");
+        if(rows.length != 8)
+            throw new IllegalArgumentException("FEN placement needs 8 rows: " + fen);
+
+        for(int y = 0; y < 8; y++){
+            int x = 0;
+            for(char ch: rows[y].toCharArray()){
+                if(Character.isDigit(ch))
+                    x += ch - '0';
+                else{
+                    int type = "pnbrqk".indexOf(Character.toLowerCase(ch));
+                    if(type == -1 || x > 7)
+                        throw new IllegalArgumentException("bad FEN row \"" + rows[y] + "\"");
+                    board.put(type, Character.isUpperCase(ch) ? WHITE : BLACK, square(x++, y));
+                }
+            }
+        }
+        if(fields.length > 1)
+            board.setSideToMove(fields[1].equals("b") ? BLACK : WHITE);
+        if(fields.length > 4)
+            board.halfmoves = Integer.parseInt(fields[4]);
+        return board;
+    }
+
+    //returns the position in Forsyth-Edwards Notation
+    public String toFen(){
+        StringBuilder fen = new StringBuilder();
+        for(int y = 0; y < 8; y++){
+            int empty = 0;
+            for(int x = 0; x < 8; x++){
+                int sq = square(x, y);
+                if(types[sq] == EMPTY)
+                    empty++;
+                else{
+                    if(empty > 0)
+                        fen.append(empty);
+                    empty = 0;
+                    char ch = "pnbrqk".charAt(types[sq]);
+                    fen.append(colorAt(sq) == WHITE ? Character.toUpperCase(ch) : ch);
+                }
+            }
+            if(empty > 0)
+                fen.append(empty);
+            if(y < 7)
+                fen.append('/');
+        }
+        return fen.append(side == WHITE ? " w - - " : " b - - ").append(halfmoves).append(" 1").toString();
+    }
+
+    //empty the board and its undo stack (the side to move and halfmove clock are kept, since they belong to the game rather than the pieces)
+    public void clear(){
+        ply = 0;
+        hash = side == BLACK ? Zobrist.SIDE : 0;
+        for(int c = 0; c < 2; c++){
+            occupied[c] = 0;
+            for(int t = 0; t < 6; t++)
+                pieces[c][t] = 0;
+        }
+        for(int sq = 0; sq < 64; sq++){
+            types[sq] = EMPTY;
+            squares[sq] = null;
+        }
+    }
+
+    //replace the position with the pieces in the given lists (at their current locations)
+    public void load(ArrayList<GamePiece> whitePieces, ArrayList<GamePiece> blackPieces){
+        clear();
+        for(GamePiece p: whitePieces)
+            put(p, WHITE, square(p.getLocation()));
+        for(GamePiece p: blackPieces)
+            put(p, BLACK, square(p.getLocation()));
+    }
+
+    //conversions between points on the grid and square indices
+    public static int square(int x, int y){ return y*8 + x;}
+    public static int square(Point p){ return square(p.getX(), p.getY());}
+    public static Point point(int sq){ return new Point(sq & 7, sq >>> 3);}
+    public static boolean onBoard(int x, int y){ return x >= 0 && y >= 0 && x <= 7 && y <= 7;}
+    public static boolean onBoard(Point p){ return onBoard(p.getX(), p.getY());}
+
+    //converts a bitboard of squares to a list of points (for highlighting and other list-based callers)
+    public static ArrayList<Point> toPoints(long squares){
+        ArrayList<Point> points = new ArrayList<>();
+        for(long s = squares; s != 0; s &= s - 1)
+            points.add(point(Long.numberOfTrailingZeros(s)));
+        return points;
+    }
+
+    //accessor methods for bitboards and occupancy
+    public long pieces(int color, int type){ return pieces[color][type];}
+    public long occupancy(int color){ return occupied[color];}
+    public long occupancy(){ return occupied[WHITE] | occupied[BLACK];}
+
+    //accessor methods for individual squares
+    public boolean isEmpty(int sq){ return types[sq] == EMPTY;}
+    public int typeAt(int sq){ return types[sq];}
+    public int colorAt(int sq){
+        if(types[sq] == EMPTY)
+            return EMPTY;
+        return (occupied[WHITE] >>> sq & 1) != 0 ? WHITE : BLACK;
+    }
+    public GamePiece pieceAt(int sq){ return squares[sq];}
+
+    //accessor methods for the side to move, halfmove clock and hash
+    public int sideToMove(){ return side;}
+    public int halfmoveClock(){ return halfmoves;}
+    public int ply(){ return ply;}
+
+    //returns the last move played (0 if none), the one unmakeMove would take back
+    public int lastMove(){ return ply == 0 ? 0 : undoMoves[ply - 1];}
+    public long hash(){ return hash;}
+
+    //sets the side to move (for positions set up rather than played)
+    public void setSideToMove(int color){
+        if(color != side)
+            hash ^= Zobrist.SIDE;
+        side = color;
+    }
+
+    //returns the hash computed from scratch (matches hash() whenever the incremental updates are right)
+    public long computeHash(){
+        long h = side == BLACK ? Zobrist.SIDE : 0;
+        for(int sq = 0; sq < 64; sq++)
+            if(types[sq] != EMPTY)
+                h ^= Zobrist.key(colorAt(sq), types[sq], sq);
+        return h;
+    }
+
+    //returns whether the position has occurred before with the same side to move, since the last capture or pawn move
+    public boolean isRepetition(){
+        for(int i = ply - 2; i >= 0 && i >= ply - halfmoves; i -= 2)
+            if(undoHashes[i] == hash)
+                return true;
+        return false;
+    }
+
+    //returns the square of a color's king (-1 if it has none)
+    public int kingSquare(int color){
+        long king = pieces[color][KING];
+        return king == 0 ? -1 : Long.numberOfTrailingZeros(king);
+    }
+
+    //places a piece of a given color on an empty square
+    public void put(GamePiece p, int color, int sq){
+        put(p.getType(), color, sq);
+        squares[sq] = p;
+    }
+
+    //places a piece by type alone, with no piece object (for positions that are only searched, never painted)
+    public void put(int type, int color, int sq){
+        pieces[color][type] |= 1L << sq;
+        occupied[color] |= 1L << sq;
+        types[sq] = type;
+        squares[sq] = null;
+        hash ^= Zobrist.key(color, type, sq);
+    }
+
+    //removes and returns the piece on a square
+    public GamePiece remove(int sq){
+        int color = colorAt(sq), type = types[sq];
+        GamePiece p = squares[sq];
+        if(type != EMPTY){
+            pieces[color][type] &= ~(1L << sq);
+            occupied[color] &= ~(1L << sq);
+            types[sq] = EMPTY;
+            squares[sq] = null;
+            hash ^= Zobrist.key(color, type, sq);
+        }
+        return p;
+    }
+
+    //moves the piece on one square to another (empty) square
+    public void move(int from, int to){
+        int color = colorAt(from), type = types[from];
+        long change = 1L << from | 1L << to;
+        pieces[color][type] ^= change;
+        occupied[color] ^= change;
+        types[to] = type;
+        types[from] = EMPTY;
+        squares[to] = squares[from];
+        squares[from] = null;
+        hash ^= Zobrist.key(color, type, from) ^ Zobrist.key(color, type, to);
+    }
+
+    //fills a list with the pieces of a color, setting each piece's location to its square (the views painted by ChessPanel)
+    public void listPieces(int color, ArrayList<GamePiece> list){
+        list.clear();
+        for(long s = occupied[color]; s != 0; s &= s - 1){
+            int sq = Long.numberOfTrailingZeros(s);
+            squares[sq].setLocation(point(sq));
+            list.add(squares[sq]);
+        }
+    }
+
+    //returns the pseudo-legal moves of a piece type from a square as a bitboard (king castling included)
+    public long moves(int type, int sq, int color){
+        switch(type){
+            case PAWN:
+                return Pawn.moves(this, sq, color);
+            case KNIGHT:
+                return Knight.moves(this, sq, color);
+            case BISHOP:
+                return Bishop.moves(this, sq, color);
+            case ROOK:
+                return Rook.moves(this, sq, color);
+            case QUEEN:
+                return Queen.moves(this, sq, color);
+            case KING:
+                return King.moves(this, sq, color);
+        }
+        return 0;
+    }
+
+    //returns whether the king of the given color is in check
+    public boolean inCheck(int color){
+        long king = pieces[color][KING];
+        return king != 0 && isAttacked(Long.numberOfTrailingZeros(king), 1 - color);
+    }
+
+    //returns whether a square is attacked by a color, looking outward from the square: slider rays, knight jumps, pawn diagonals and king adjacency
+    public boolean isAttacked(int sq, int color){ return isAttacked(sq, color, occupancy());}
+
+    //same, with the occupancy that blocks the slider rays given explicitly
+    public boolean isAttacked(int sq, int color, long occupancy){
+        long[] foe = pieces[color];
+        return (Magic.rookAttacks(sq, occupancy) & (foe[ROOK] | foe[QUEEN])) != 0
+            || (Magic.bishopAttacks(sq, occupancy) & (foe[BISHOP] | foe[QUEEN])) != 0
+            || (Knight.jumps(sq) & foe[KNIGHT]) != 0
+            || (Pawn.attacks(sq, 1 - color) & foe[PAWN]) != 0
+            || (King.adjacent(sq) & foe[KING]) != 0;
+    }
+
+    //returns the packed move of the piece on one square to another, with the flags the move would have
+    public int toMove(int from, int to){
+        int type = types[from], flags = 0;
+        if(types[to] != EMPTY)
+            flags |= Move.CAPTURE;
+        if(type == KING && (to - from == 2 || from - to == 2))
+            flags |= Move.CASTLE;
+        if(type == PAWN && (to >>> 3 == 0 || to >>> 3 == 7))
+            flags |= Move.PROMOTION;
+        return Move.of(from, to, type, types[to], flags);
+    }
+
+    //plays a move: removes any captured foe, moves the rook along when castling, promotes pawns reaching the edge to queens, and updates the halfmove clock, side to move and hash
+    public void makeMove(int move){
+        int from = Move.from(move), to = Move.to(move), color = colorAt(from);
+
+        //push the state needed to take the move back, growing the stack if needed
+        if(ply == undoMoves.length){
+            undoMoves = Arrays.copyOf(undoMoves, ply*2);
+            undoClocks = Arrays.copyOf(undoClocks, ply*2);
+            undoHashes = Arrays.copyOf(undoHashes, ply*2);
+            undoCaptured = Arrays.copyOf(undoCaptured, ply*2);
+            undoMoved = Arrays.copyOf(undoMoved, ply*2);
+        }
+        undoMoves[ply] = move;
+        undoClocks[ply] = halfmoves;
+        undoHashes[ply] = hash;
+        undoCaptured[ply] = squares[to];
+        undoMoved[ply] = squares[from];
+        ply++;
+
+        if(Move.isCapture(move))
+            remove(to);
+        if(Move.isCastle(move))
+            move(rookFrom(from, to), rookTo(from, to));
+        move(from, to);
+
+        //replace a promoted pawn with a queen (and a queen object, if the pawn had one)
+        if(Move.isPromotion(move)){
+            GamePiece pawn = squares[to];
+            remove(to);
+            if(pawn != null)
+                put(new Queen(point(to)), color, to);
+            else
+                put(QUEEN, color, to);
+        }
+
+        //captures and pawn moves restart the count toward stalemate
+        if(Move.isCapture(move) || Move.type(move) == PAWN)
+            halfmoves = 0;
+        else
+            halfmoves++;
+
+        //give the turn to the other side
+        side = 1 - side;
+        hash ^= Zobrist.SIDE;
+    }
+
+    //takes back the last move played with makeMove
+    public void unmakeMove(){
+        ply--;
+        int move = undoMoves[ply], from = Move.from(move), to = Move.to(move), color = colorAt(to);
+
+        if(Move.isPromotion(move)){
+            remove(to);
+            put(PAWN, color, to);
+        }
+        move(to, from);
+        squares[from] = undoMoved[ply];
+        if(Move.isCastle(move))
+            move(rookTo(from, to), rookFrom(from, to));
+        if(Move.isCapture(move)){
+            put(Move.captured(move), 1 - color, to);
+            squares[to] = undoCaptured[ply];
+        }
+
+        halfmoves = undoClocks[ply];
+        side = 1 - side;
+        hash = undoHashes[ply];
+        undoCaptured[ply] = undoMoved[ply] = null;
+    }
+
+    //squares the rook moves between when the king castles from one square to another
+    private static int rookFrom(int from, int to){ return to > from ? from + 3 : from - 4;}
+    private static int rookTo(int from, int to){ return to > from ? from + 1 : from - 1;}
+
+    //returns the moves of the piece on a square that wouldn't leave its own king in check
+    public long legalMoves(int sq){
+        if(legalHash != hash){
+            legalHash = hash;
+            legalKnown = 0;
+        }
+        if((legalKnown & 1L << sq) == 0){
+            legal[sq] = findLegalMoves(sq);
+            legalKnown |= 1L << sq;
+        }
+        return legal[sq];
+    }
+
+    //drops the legal moves worked out so far, as if the position were new (for benchmarking the work the cache saves)
+    void forgetLegal(){ legalKnown = 0;}
+
+    //works out the legal moves of the piece on a square by playing each one and testing for check
+    private long findLegalMoves(int sq){
+        int color = colorAt(sq);
+        long legal = 0;
+        for(long m = moves(types[sq], sq, color); m != 0; m &= m - 1){
+            int to = Long.numberOfTrailingZeros(m);
+            if(isLegal(toMove(sq, to), color))
+                legal |= 1L << to;
+        }
+        return legal;
+    }
+
+    //returns whether a color has any legal move at all
+    public boolean hasLegalMove(int color){
+        for(long s = occupied[color]; s != 0; s &= s - 1)
+            if(legalMoves(Long.numberOfTrailingZeros(s)) != 0)
+                return true;
+        return false;
+    }
+
+    //returns the state of the game for a color (the rules the window and the self-play driver both end games by)
+    public int status(int color){
+        if(halfmoves >= 50)
+            return FIFTY_MOVES;
+        if(hasLegalMove(color))
+            return PLAYING;
+        return inCheck(color) ? CHECKMATE : STALEMATE;
+    }
+
+    //writes the pseudo-legal moves of a color into a caller-owned buffer starting at an index, returning the index after the last move
+    public int generate(int color, int[] moves, int count){
+        for(long s = occupied[color]; s != 0; s &= s - 1){
+            int from = Long.numberOfTrailingZeros(s);
+            for(long m = moves(types[from], from, color); m != 0; m &= m - 1)
+                moves[count++] = toMove(from, Long.numberOfTrailingZeros(m));
+        }
+        return count;
+    }
+
+    //same as generate, but only writing captures and promotions (the moves searched past the horizon)
+    public int generateCaptures(int color, int[] moves, int count){
+        long foes = occupied[1 - color], lastRanks = 0xFF000000000000FFL;
+        for(long s = occupied[color]; s != 0; s &= s - 1){
+            int from = Long.numberOfTrailingZeros(s), type = types[from];
+            long targets = type == KING ? King.adjacent(from) & foes : moves(type, from, color) & (type == PAWN ? foes | lastRanks : foes);
+            for(long m = targets; m != 0; m &= m - 1)
+                moves[count++] = toMove(from, Long.numberOfTrailingZeros(m));
+        }
+        return count;
+    }
+
+    //same as generate, but only writing moves that wouldn't leave the king in check
+    public int generateLegal(int color, int[] moves, int count){
+        int end = generate(color, moves, count);
+        for(int i = count; i < end; i++)
+            if(isLegal(moves[i], color))
+                moves[count++] = moves[i];
+        return count;
+    }
+
+    //returns whether a move wouldn't leave the mover's king in check (the move is made and taken back)
+    private boolean isLegal(int move, int color){
+        makeMove(move);
+        boolean legal = !inCheck(color);
+        unmakeMove();
+        return legal;
+    }
+}
@@ -0,0 +1,199 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/*  The foe pieces flying around one side of the bullet stage, stored as parallel primitive arrays
+ *  per piece type (location, velocity, and capture time) rather than as piece objects, so a tick
+ *  is one tight loop over plain ints for each kind of movement:
+ *
+ *      pawns      vertical, 1 per tick up or down
+ *      knights    an uneven diagonal, 1 and 2 (either way round) per tick
+ *      bishops    diagonal, 1 per tick each way
+ *      rooks      horizontal, 2 per tick left or right
+ *      queens     up to 2 per tick each way, rerolled on average once a second
+ *
+ *  A piece leaving the arena comes back on the opposite edge (left to right and top to bottom and
+ *  vice versa), as it always has.
+ *
+ *  Each arena rolls its pieces' locations and velocities from its own generator, so the two arenas
+ *  can be ticked at once and a seeded arena always plays out the same way. The random part of a
+ *  tick (steer) is kept apart from the moving, which has none, so the moving can be split into
+ *  ranges of pieces run on different threads (see TickScheduler).
+ */
+
+public class BulletArena {
+    //piece sizes by type (pawn, knight, bishop, rook, queen): pawns and knights the king's size, bishops twice the pawn's width and height,
+    //rooks four times its height, queens four times its width and height
+    private static final int[] WIDTHS = {10, 10, 20, 10, 40}, HEIGHTS = {10, 10, 20, 40, 40};
+    private static final int TYPES = 5;
+
+    //knight x steps to pick from (the y step is whichever of 1 and 2 the x step isn't)
+    private static final int[] KNIGHT_X = {-1, -2, 2, 1};
+
+    //bounds the pieces wrap around in
+    private final int xmin, xmax, ymin, ymax;
+
+    //per type: number of pieces, and each piece's upper left-hand corner, velocity and capture time; the latest capture time of all
+    private int[] counts = new int[TYPES];
+    private int[][] xs = new int[TYPES][16], ys = new int[TYPES][16], dxs = new int[TYPES][16], dys = new int[TYPES][16], times = new int[TYPES][16];
+    private int maxTime;
+
+    //generator for every location and velocity
+    private final Random random;
+
+    //makes an empty arena within bounds, its pieces rolled from a seed (or from an arbitrary one)
+    public BulletArena(int xmin, int xmax, int ymin, int ymax, long seed){
+        this.xmin = xmin;
+        this.xmax = xmax;
+        this.ymin = ymin;
+        this.ymax = ymax;
+        random = new Random(seed);
+    }
+    public BulletArena(int xmin, int xmax, int ymin, int ymax){ this(xmin, xmax, ymin, ymax, new Random().nextLong());}
+
+    //sizes of a piece type
+    public static int width(int type){ return WIDTHS[type];}
+    public static int height(int type){ return HEIGHTS[type];}
+
+    //number of pieces in all, or of a type
+    public int size(){
+        int size = 0;
+        for(int count: counts)
+            size += count;
+        return size;
+    }
+    public int count(int type){ return counts[type];}
+
+    //location of a piece (by type and index within its type)
+    public int x(int type, int i){ return xs[type][i];}
+    public int y(int type, int i){ return ys[type][i];}
+
+    //latest capture time of any piece added
+    public int maxTime(){ return maxTime;}
+
+    //adds a piece of a type captured at a time, at a random location within the given bounds, heading in a random direction for its type
+    public void add(int type, int time, int left, int right, int top, int bottom){
+        int i = counts[type];
+        if(i == xs[type].length){
+            xs[type] = Arrays.copyOf(xs[type], i*2);
+            ys[type] = Arrays.copyOf(ys[type], i*2);
+            dxs[type] = Arrays.copyOf(dxs[type], i*2);
+            dys[type] = Arrays.copyOf(dys[type], i*2);
+            times[type] = Arrays.copyOf(times[type], i*2);
+        }
+        counts[type]++;
+        times[type][i] = time;
+        maxTime = Math.max(maxTime, time);
+        place(type, i, left, right, top, bottom);
+
+        switch(type){
+            case Board.PAWN:
+                dxs[type][i] = 0;
+                dys[type][i] = random.nextDouble() > .5 ? 1 : -1;
+                break;
+            case Board.KNIGHT:
+                //|x| == 2 and |y| == 1 or vice versa, each either way, so it travels an uneven diagonal slightly faster than a bishop
+                int xInc = KNIGHT_X[(int) (random.nextDouble()*4)];
+                dxs[type][i] = xInc;
+                dys[type][i] = (Math.abs(xInc) == 1 ? 2 : 1)*(random.nextDouble() > .5 ? -1 : 1);
+                break;
+            case Board.BISHOP:
+                dxs[type][i] = random.nextDouble() > .5 ? 1 : -1;
+                dys[type][i] = random.nextDouble() > .5 ? 1 : -1;
+                break;
+            case Board.ROOK:
+                dxs[type][i] = random.nextDouble() > .5 ? 2 : -2;
+                dys[type][i] = 0;
+                break;
+            default:
+                reroll(i);
+        }
+    }
+
+    //adds a piece of a type at a random location within the arena
+    public void add(int type, int time){ add(type, time, xmin, xmax, ymin, ymax);}
+
+    //adds a copy of every piece (same type and capture time) at a random location within the given bounds (sudden death)
+    public void doubleUp(int left, int right, int top, int bottom){
+        for(int type = 0; type < TYPES; type++)
+            for(int i = 0, n = counts[type]; i < n; i++)
+                add(type, times[type][i], left, right, top, bottom);
+    }
+
+    //moves a piece to a random location within the arena (after hitting the king)
+    public void randomize(int type, int i){ place(type, i, xmin, xmax, ymin, ymax);}
+
+    //moves every piece one tick by its type's movement, wrapping around the edges
+    public void move(){
+        steer();
+        for(int type = 0; type < TYPES; type++)
+            move(type, 0, counts[type]);
+    }
+
+    //the random part of a tick: each queen takes a new velocity 1 tick in 60 on average (rolled in order, so the
+    //rolls are the same however the moving is then split up)
+    public void steer(){
+        for(int i = 0, n = counts[Board.QUEEN]; i < n; i++)
+            if((int) (random.nextDouble()*60) == 0)
+                reroll(i);
+    }
+
+    //moves the pieces of a type from one index up to (not including) another one tick, after steer
+    //(disjoint ranges touch disjoint array elements, so they may be moved on different threads at once)
+    public void move(int type, int from, int to){
+        int[] x = xs[type], y = ys[type], dx = dxs[type], dy = dys[type];
+        switch(type){
+            case Board.PAWN:
+                //y only
+                for(int i = from; i < to; i++)
+                    y[i] = wrap(y[i] + dy[i], ymin, ymax);
+                break;
+            case Board.ROOK:
+                //x only
+                for(int i = from; i < to; i++)
+                    x[i] = wrap(x[i] + dx[i], xmin, xmax);
+                break;
+            default:
+                //knights, bishops and queens: a step in x and y
+                for(int i = from; i < to; i++){
+                    x[i] = wrap(x[i] + dx[i], xmin, xmax);
+                    y[i] = wrap(y[i] + dy[i], ymin, ymax);
+                }
+        }
+    }
+
+    //fills a grid with every piece where it is now
+    public void fill(CollisionGrid grid){
+        grid.clear();
+        for(int type = 0; type < TYPES; type++){
+            int[] x = xs[type], y = ys[type];
+            for(int i = 0, n = counts[type]; i < n; i++)
+                grid.add(type, i, x[i], y[i]);
+        }
+    }
+
+    //new queen velocity: 0 to 2 each way, x either way round; y is then zeroed half of the time (it was always scaled by a tenth and truncated)
+    private void reroll(int i){
+        int xInc = (int) (random.nextDouble()*3), yInc = (int) (random.nextDouble()*3);
+        if(random.nextDouble() > .5)
+            xInc *= -1;
+        if(random.nextDouble() > .5)
+            yInc *= .1;
+        dxs[Board.QUEEN][i] = xInc;
+        dys[Board.QUEEN][i] = yInc;
+    }
+
+    //puts a piece at a random location within bounds
+    private void place(int type, int i, int left, int right, int top, int bottom){
+        xs[type][i] = (int) (random.nextDouble()*(right - left) + left);
+        ys[type][i] = (int) (random.nextDouble()*(bottom - top) + top);
+    }
+
+    //a coordinate past one edge comes back at the other
+    private static int wrap(int v, int min, int max){
+        if(v < min)
+            return max;
+        if(v > max)
+            return min;
+        return v;
+    }
+}
@@ -0,0 +1,88 @@
+/*  The bullet stage's rules, stepped one tick (1/60 of a second) at a time, apart from the window
+ *  and the clock: each tick both kings take the keys their players hold, the panel moves and
+ *  transfers the pieces, and any collisions are counted. Once both sides' time is up, a tie goes
+ *  to sudden death, where every piece is doubled every 10 seconds (600 ticks) until one side has
+ *  more collisions than the other.
+ *
+ *  Everything random comes from the panel's arenas, seeded from one seed, and the only input is
+ *  the keys held each tick, so a stage is fully determined by its seed, the pieces going in, and
+ *  the keys. The keys are recorded in a BulletReplay as the stage is played, so it can be played
+ *  again headless (java BulletReplay) exactly as it went.
+ */
+
+public class BulletGame {
+    //ticks per second of stage time, and ticks between doublings in sudden death
+    public static final int TICKS_PER_SECOND = 60, DOUBLE_TICKS = 600;
+
+    private final BulletPanel panel;
+    private final King whiteKing, blackKing;
+    private final int whiteChessTime, blackChessTime;
+    private final BulletReplay replay;
+
+    //collisions so far, ticks played, the tick of the last doubling, and the state of the stage
+    private int whiteCollisions, blackCollisions, ticks, lastDouble;
+    private boolean running = true, suddenDeath;
+
+    //starts a stage on a panel (before any of its pieces are transferred), with the kings it moves and each side's chess time in seconds
+    public BulletGame(BulletPanel panel, King whk, King blk, int whiteTime, int blackTime){
+        this.panel = panel;
+        whiteKing = whk;
+        blackKing = blk;
+        whiteChessTime = whiteTime;
+        blackChessTime = blackTime;
+        replay = new BulletReplay(panel.seed(), whiteTime, blackTime, panel.whiteRemaining(), panel.blackRemaining());
+
+        //the kings start in the middle of the top of their arenas
+        whiteKing.setLocation(new Point(140, 100));
+        blackKing.setLocation(new Point(450, 100));
+    }
+
+    //plays one tick with the keys (King.UP, LEFT, DOWN and RIGHT bits) each side holds, returning false once the stage is over
+    public boolean step(int whiteKeys, int blackKeys){
+        if(over())
+            return false;
+        replay.record(whiteKeys, blackKeys);
+        whiteKing.setKeys(whiteKeys);
+        blackKing.setKeys(blackKeys);
+
+        //double every piece when it's time (the first tick of sudden death, then every 10 seconds)
+        if(suddenDeath && ticks - lastDouble >= DOUBLE_TICKS){
+            panel.black().doubleUp(325,565,25,365);
+            panel.white().doubleUp(20,265,25,365);
+            lastDouble = ticks;
+        }
+
+        //move everything, and add any collisions to the counters
+        panel.updateGame(TICKS_PER_SECOND, suddenDeath);
+        if (panel.white().size() > 0 && (suddenDeath || whiteChessTime>0))
+            whiteCollisions += panel.whiteGrid().collide(whiteKing, panel.white());
+        if (panel.black().size() > 0 && (suddenDeath || blackChessTime>0))
+            blackCollisions += panel.blackGrid().collide(blackKing, panel.black());
+        ticks++;
+
+        //the stage runs while either side has time left; a tie then goes to sudden death, which runs until the tie is broken
+        running = running && (panel.whiteTime()>0 || panel.blackTime()>0);
+        suddenDeath = suddenDeath && whiteCollisions == blackCollisions;
+        if(!running && !suddenDeath && whiteCollisions == blackCollisions){
+            suddenDeath = true;
+            lastDouble = ticks - DOUBLE_TICKS;
+        }
+
+        if(over())
+            replay.finish(ticks, whiteCollisions, blackCollisions);
+        return !over();
+    }
+
+    //state of the stage
+    public boolean over(){ return !running && !suddenDeath;}
+    public boolean suddenDeath(){ return suddenDeath;}
+    public int ticks(){ return ticks;}
+    public int whiteCollisions(){ return whiteCollisions;}
+    public int blackCollisions(){ return blackCollisions;}
+
+    //milliseconds until the next doubling in sudden death
+    public int doubleTimeLeft(){ return (DOUBLE_TICKS - (ticks - lastDouble))*1000/TICKS_PER_SECOND;}
+
+    //the replay of the stage so far (complete once it's over)
+    public BulletReplay replay(){ return replay;}
+}
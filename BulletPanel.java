@@ -1,5 +1,6 @@
 import javax.swing.*;
 import java.awt.*;
+import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 
 /* Wholly superfluous class. Rendering is done actively in ChessGame and the game logic would
@@ -9,63 +10,178 @@ import java.util.ArrayList;
  * with this code.
  */
 
+@SuppressWarnings("serial")
 public class BulletPanel extends JPanel{
-    //fields for the unadded black/white pieces, added black/white, and current time in milliseconds
-    private ArrayList<GamePiece> blackRemaining, whiteRemaining, black, white;
+    //fields for the unadded black/white pieces, the kings, and current time in milliseconds
+    private ArrayList<GamePiece> blackRemaining, whiteRemaining;
+    private King blackKing, whiteKing;
     private int curTime, timeSinceTransfer;
+    private final long seed;
 
-    //constructor, takes arguments for the black, white arraylists and corresponding kings
-    public BulletPanel(ArrayList<GamePiece> bl, ArrayList<GamePiece> wh, GamePiece blk, GamePiece whk){
-        //set fields for unadded pieces
+    //added black/white pieces (each side's arena of foe pieces), and grids of them for the king collision test, refilled every tick
+    private BulletArena black, white;
+    private CollisionGrid blackGrid = new CollisionGrid(20, 325, 565, 25, 365), whiteGrid = new CollisionGrid(20, 25, 265, 25, 365);
+
+    //runs the arenas' ticks (at once, when they are big enough to be worth it), shared by every panel
+    private static final TickScheduler scheduler = new TickScheduler();
+
+    //what the scheduler ticks (white's then black's arena, whether each is running, and the rest of each one's tick), kept so a tick allocates nothing
+    private BulletArena[] arenas;
+    private boolean[] running = new boolean[2];
+    private Refill whiteRefill, blackRefill;
+    private Runnable[] refills;
+
+    //constructor, takes arguments for the black, white arraylists and corresponding kings, and a seed for the arenas (or picks one)
+    public BulletPanel(ArrayList<GamePiece> bl, ArrayList<GamePiece> wh, King blk, King whk, long seed){
+        //set fields for unadded pieces and kings
         blackRemaining = bl;
         whiteRemaining = wh;
+        blackKing = blk;
+        whiteKing = whk;
 
-        //add kings to pieces
-        black = new ArrayList<>();
-        black.add(blk);
-        white = new ArrayList<>();
-        white.add(whk);
+        //each arena rolls from its own seed, so they can be ticked at once
+        this.seed = seed;
+        java.util.Random seeds = new java.util.Random(seed);
+        black = new BulletArena(325, 565, 25, 365, seeds.nextLong());
+        white = new BulletArena(25, 265, 25, 365, seeds.nextLong());
+        arenas = new BulletArena[]{white, black};
+        whiteRefill = new Refill(whiteRemaining, white, whiteGrid, 20, 265);
+        blackRefill = new Refill(blackRemaining, black, blackGrid, 325, 565);
+        refills = new Runnable[]{whiteRefill, blackRefill};
 
 	//set background and time since trasfer of pieces
         setBackground(Color.WHITE);
     	timeSinceTransfer = 0;
     }
+    public BulletPanel(ArrayList<GamePiece> bl, ArrayList<GamePiece> wh, King blk, King whk){ this(bl, wh, blk, whk, new java.util.Random().nextLong());}
 
-    //paint a particular piece as an oval according to its width and height fields
-    public static void paintPiece(Graphics g, GamePiece p, Color out, Color fill){
+    //paint a king as an oval according to its width and height fields
+    public static void paintPiece(Graphics g, King p, Color out, Color fill){
         g.setColor(fill);
         g.fillOval(p.getLocation().getX(), p.getLocation().getY(), p.getWidth(), p.getHeight());
         g.setColor(out);
         g.drawOval(p.getLocation().getX(), p.getLocation().getY(), p.getWidth(), p.getHeight());
     }
 
-    //paint all pieces and the basic board
-    public void paintComponent(Graphics gr){
-        super.paintComponent(gr);
+    //anti-aliasing of the pieces and board: none, the default, or the best quality (switchable while playing)
+    public static final int AA_OFF = 0, AA_ON = 1, AA_QUALITY = 2;
+    private static volatile int antialiasing = AA_ON;
+
+    //the static arena (sides and boundaries) rasterized once, and an atlas of one sprite per piece type (and king) for each side's colors,
+    //both kept in video memory where possible; a sprite's cell in the atlas has a pixel of margin, since an oval's outline and its
+    //anti-aliasing reach just past its width and height
+    private static AcceleratedImage background, atlas;
+    private static int rasterized = -1;
+    private static final int[][] cellX = new int[2][6];
+    private static final int CELL_HEIGHT = 42;
+
+    //sets the anti-aliasing level (the board and sprites are rasterized again at the next frame, on the thread drawing them)
+    public static void setAntialiasing(int level){ antialiasing = level;}
+    public static int getAntialiasing(){ return antialiasing;}
+
+    //sets the rendering hints for an anti-aliasing level
+    private static void hints(Graphics2D g, int level){
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, level == AA_OFF ? RenderingHints.VALUE_ANTIALIAS_OFF : RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, level == AA_OFF ? RenderingHints.VALUE_TEXT_ANTIALIAS_OFF : RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.setRenderingHint(RenderingHints.KEY_RENDERING, level == AA_QUALITY ? RenderingHints.VALUE_RENDER_QUALITY : RenderingHints.VALUE_RENDER_DEFAULT);
+        g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, level == AA_QUALITY ? RenderingHints.VALUE_STROKE_PURE : RenderingHints.VALUE_STROKE_DEFAULT);
+    }
+
+    //paint an arena's pieces (and its king) from the atlas cells for its side, all from the one image so the pipeline can batch the copies
+    private static void paintPieces(Graphics g, Image sprites, BulletArena arena, King king, int side){
+        for(int type = Board.PAWN; type <= Board.QUEEN; type++){
+            int sx = cellX[side][type], w = BulletArena.width(type) + 2, h = BulletArena.height(type) + 2;
+            for(int i = 0, n = arena.count(type); i < n; i++){
+                int x = arena.x(type, i) - 1, y = arena.y(type, i) - 1;
+                g.drawImage(sprites, x, y, x + w, y + h, sx, 0, sx + w, h, null);
+            }
+        }
+        int x = king.getLocation().getX() - 1, y = king.getLocation().getY() - 1, sx = cellX[side][Board.KING];
+        g.drawImage(sprites, x, y, x + king.getWidth() + 2, y + king.getHeight() + 2, sx, 0, sx + king.getWidth() + 2, king.getHeight() + 2, null);
+    }
+
+    //the atlas: every sprite in a row, white's then black's (white's foe pieces are white outlined in black, black's the reverse; its king cyan or red)
+    private static AcceleratedImage atlas(){
+        if(atlas == null){
+            int width = 0;
+            for(int side = 0; side < 2; side++)
+                for(int type = Board.PAWN; type <= Board.KING; type++){
+                    cellX[side][type] = width;
+                    width += (type == Board.KING ? 10 : BulletArena.width(type)) + 2;
+                }
+
+            BufferedImage sprites = image(width, CELL_HEIGHT, Transparency.TRANSLUCENT);
+            Graphics2D g = sprites.createGraphics();
+            hints(g, rasterized);
+            for(int side = 0; side < 2; side++)
+                for(int type = Board.PAWN; type <= Board.KING; type++){
+                    int w = type == Board.KING ? 10 : BulletArena.width(type), h = type == Board.KING ? 10 : BulletArena.height(type);
+                    g.setColor(type == Board.KING ? (side == Board.WHITE ? Color.CYAN : Color.RED) : (side == Board.WHITE ? Color.WHITE : Color.BLACK));
+                    g.fillOval(cellX[side][type] + 1, 1, w, h);
+                    g.setColor(side == Board.WHITE ? Color.BLACK : Color.WHITE);
+                    g.drawOval(cellX[side][type] + 1, 1, w, h);
+                }
+            g.dispose();
+            atlas = new AcceleratedImage(sprites);
+        }
+        return atlas;
+    }
 
-        //cast to Graphics2D and set anti-aliasing for text and shapes
+    //the basic board: a white side and a black side, each with the boundary of its arena
+    private static AcceleratedImage background(){
+        if(background == null){
+            BufferedImage board = image(650, 450, Transparency.OPAQUE);
+            Graphics2D g = board.createGraphics();
+            hints(g, rasterized);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, 650, 450);
+            g.setColor(Color.BLACK);
+            g.fillRect(300,0,350,450);
+            g.drawRect(25, 25, 250, 350);
+            g.setColor(Color.WHITE);
+            g.drawRect(325, 25, 250, 350);
+            g.dispose();
+            background = new AcceleratedImage(board);
+        }
+        return background;
+    }
+
+    //an image in the screen's own format where there is a screen (so drawing it is a plain copy), or a standard one headless
+    public static BufferedImage image(int width, int height, int transparency){
+        if(GraphicsEnvironment.isHeadless())
+            return new BufferedImage(width, height, transparency == Transparency.OPAQUE ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+        return GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration().createCompatibleImage(width, height, transparency);
+    }
+
+    //paint all pieces and the basic board, copying the board and sprites from video memory (so the cost per piece is one accelerated copy),
+    //drawn again from the images in main memory if video memory is lost part way through
+    public void paintComponent(Graphics gr){
+        //cast to Graphics2D and set anti-aliasing for any text and shapes drawn over the stage
         Graphics2D g = (Graphics2D) gr;
-        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
-
-        //draw basic sides and boundaries
-        g.setColor(Color.BLACK);
-        g.fillRect(300,0,350,450);
-        g.drawRect(25, 25, 250, 350);
-        g.setColor(Color.WHITE);
-        g.drawRect(325, 25, 250, 350);
-
-        //paint all foe pieces if there are any
-        if(black.size()>1)
-            for(GamePiece p: black.subList(1,black.size()))
-                paintPiece(g, p, Color.WHITE, Color.BLACK);
-        if(white.size()>1)
-            for(GamePiece p: white.subList(1,white.size()))
-                paintPiece(g, p, Color.BLACK, Color.WHITE);
-
-        //paint the kings
-        paintPiece(g, black.get(0), Color.WHITE, Color.RED);
-        paintPiece(g, white.get(0), Color.BLACK, Color.CYAN);
+        int level = antialiasing;
+        hints(g, level);
+
+        //rasterize the board and sprites again if the level has changed
+        if(level != rasterized){
+            if(background != null)
+                background.flush();
+            if(atlas != null)
+                atlas.flush();
+            background = atlas = null;
+            rasterized = level;
+        }
+
+        AcceleratedImage board = background(), sprites = atlas();
+        paint(g, board.image(g), sprites.image(g));
+        if(board.lost() || sprites.lost())
+            paint(g, board.master(), sprites.master());
+    }
+
+    //draw basic sides and boundaries, then each arena's foe pieces with its king over them
+    private void paint(Graphics g, Image board, Image sprites){
+        g.drawImage(board, 0, 0, null);
+        paintPieces(g, sprites, black, blackKing, Board.BLACK);
+        paintPieces(g, sprites, white, whiteKing, Board.WHITE);
     }
 
     //update the game logic
@@ -74,64 +190,89 @@ public class BulletPanel extends JPanel{
         curTime+=1000/FPS;
         timeSinceTransfer+=1000/FPS;
 
-        //move pieces if they are running
-        if(suddenDeath || whiteTime()>0)
-            movePieces(white, 25, 265, 25, 365);
-        if(suddenDeath || blackTime()>0)
-            movePieces(black, 325, 565, 25, 365);
-
         //transfer pieces every 1/10 second
-        if(timeSinceTransfer >= 100){
+        boolean transfer = timeSinceTransfer >= 100;
+        if(transfer)
             timeSinceTransfer = 0;
-            transferPieces(blackRemaining, black, 325, 565, 25, 365);
-            transferPieces(whiteRemaining, white, 20, 265, 25, 365);
-        }
+
+        //move the kings and pieces of the arenas that are running, then transfer and grid each arena's pieces where they now are
+        //(collisions move some even when an arena isn't running)
+        running[0] = suddenDeath || whiteTime()>0;
+        running[1] = suddenDeath || blackTime()>0;
+        if(running[0])
+            moveKing(whiteKing, 25, 265, 25, 365);
+        if(running[1])
+            moveKing(blackKing, 325, 565, 25, 365);
+        whiteRefill.transfer = transfer;
+        blackRefill.transfer = transfer;
+        scheduler.tick(arenas, running, refills);
     }
 
-    //moves pieces within their boundaries by their intrinsic behaviors
-    public void movePieces(ArrayList<GamePiece> pcs, int xmin, int xmax, int ymin, int ymax){
-        Point loc;
-        for(GamePiece p: pcs){
-            //move the piece (varies by subclass)
-            p.move();
-
-            //if out of the grid, teleport (left boundary to right and vice versa)
-            loc = p.getLocation();
-            if(loc.getX()<xmin)
-                loc = new Point(xmax, loc.getY());
-            else if(loc.getX()>xmax)
-                loc = new Point(xmin, loc.getY());
-            if(loc.getY()<ymin)
-                loc = new Point(loc.getX(), ymax);
-            else if(loc.getY()>ymax)
-                loc = new Point(loc.getX(), ymin);
-
-            //set the location to the new one within the boundaries
-            p.setLocation(loc);
+    //moves a king within its boundaries by its velocity
+    public void moveKing(King king, int xmin, int xmax, int ymin, int ymax){
+        //move the king
+        king.move();
+
+        //if out of the grid, teleport (left boundary to right and vice versa)
+        Point loc = king.getLocation();
+        if(loc.getX()<xmin)
+            loc = new Point(xmax, loc.getY());
+        else if(loc.getX()>xmax)
+            loc = new Point(xmin, loc.getY());
+        if(loc.getY()<ymin)
+            loc = new Point(loc.getX(), ymax);
+        else if(loc.getY()>ymax)
+            loc = new Point(loc.getX(), ymin);
+
+        //set the location to the new one within the boundaries
+        king.setLocation(loc);
+    }
+
+    //the rest of an arena's tick, after its pieces move: transfer in any pieces due (if it is time), then refill its grid
+    //(only touches its own side, so the two sides may run at once; whether to transfer is set before each tick)
+    private class Refill implements Runnable {
+        private ArrayList<GamePiece> rem;
+        private BulletArena arena;
+        private CollisionGrid grid;
+        private boolean transfer;
+        private int xmin, xmax;
+        public Refill(ArrayList<GamePiece> r, BulletArena a, CollisionGrid g, int left, int right){
+            rem = r;
+            arena = a;
+            grid = g;
+            xmin = left;
+            xmax = right;
+        }
+        public void run(){
+            if(transfer)
+                transferPieces(rem, arena, xmin, xmax, 25, 365);
+            arena.fill(grid);
         }
     }
+
     //transfer in any pieces according to the current time and their capture time by a 1:1 ratio
-    private void transferPieces(ArrayList<GamePiece> rem, ArrayList<GamePiece> pcs, int xmin, int xmax, int ymin, int ymax){
+    private void transferPieces(ArrayList<GamePiece> rem, BulletArena arena, int xmin, int xmax, int ymin, int ymax){
         for(int i = 0; i < rem.size(); i++)
             if(rem.get(i).getTime() <= curTime/100){
-                rem.get(i).randomize(xmin, xmax, ymin, ymax);
-                pcs.add(rem.remove(i));
+                GamePiece p = rem.remove(i);
+                arena.add(p.getType(), p.getTime(), xmin, xmax, ymin, ymax);
             }
     }
 
-    //accessor methods for pieces and time left
-    public ArrayList<GamePiece> black(){return black;}
-    public ArrayList<GamePiece> white(){return white;}
-    public int timeLeft(ArrayList<GamePiece> rem, ArrayList<GamePiece> pcs){
-        int max = 0;
+    //accessor methods for the seed, pieces, their grids, and time left
+    public long seed(){return seed;}
+    public ArrayList<GamePiece> blackRemaining(){return blackRemaining;}
+    public ArrayList<GamePiece> whiteRemaining(){return whiteRemaining;}
+    public BulletArena black(){return black;}
+    public BulletArena white(){return white;}
+    public CollisionGrid blackGrid(){return blackGrid;}
+    public CollisionGrid whiteGrid(){return whiteGrid;}
+    public int timeLeft(ArrayList<GamePiece> rem, BulletArena arena){
+        int max = arena.maxTime();
         for(GamePiece p: rem)
             if(p.getTime() > max)
                 max = p.getTime();
 
-        for(GamePiece p: pcs)
-            if(p.getTime() > max)
-                max = p.getTime();
-
         return 60000+max*100-curTime;
     }
     public int blackTime(){return timeLeft(blackRemaining, black);}
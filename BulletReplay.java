@@ -0,0 +1,197 @@
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/*  A record of one bullet stage: what it started from (the seed, each side's chess time, and the
+ *  type and capture time of each side's pieces, in the order they were waiting) and the keys each
+ *  side held on every tick, which is all a BulletGame needs to play the stage again exactly. The
+ *  result is kept too, so a replay can check itself. As a text file:
+ *
+ *      bullet replay
+ *      seed -4962768465676381896
+ *      chess 134 121
+ *      white 0:12 4:30 ...        (type:capture time, for each piece flying at the white king)
+ *      black 1:7 ...
+ *      keys 45 0 0                (45 ticks with white holding keys 0 and black keys 0)
+ *      keys 12 8 2
+ *      ...
+ *      result 3761 14 9           (ticks, white collisions, black collisions)
+ *
+ *  Runs of the same keys are one line, since keys are held for many ticks at a time.
+ *
+ *      java BulletReplay <replay file> [times]
+ *
+ *  plays a replay headless (as many times as asked, for profiling) and reports whether it ended the
+ *  same way, and the ticks per second simulated.
+ */
+
+public class BulletReplay {
+    private final long seed;
+    private final int whiteTime, blackTime;
+    private final int[] whitePieces, blackPieces;
+
+    //runs of ticks with the same keys (white's in the low four bits, black's above), and the result (-1 ticks until there is one)
+    private int[] runs = new int[16], keys = new int[16];
+    private int count, ticks = -1, whiteCollisions, blackCollisions;
+
+    //starts a replay of a stage from a seed, the chess times, and each side's waiting pieces
+    public BulletReplay(long seed, int whiteTime, int blackTime, ArrayList<GamePiece> white, ArrayList<GamePiece> black){
+        this(seed, whiteTime, blackTime, pack(white), pack(black));
+    }
+    private BulletReplay(long seed, int whiteTime, int blackTime, int[] white, int[] black){
+        this.seed = seed;
+        this.whiteTime = whiteTime;
+        this.blackTime = blackTime;
+        whitePieces = white;
+        blackPieces = black;
+    }
+
+    //adds a tick's keys
+    public void record(int whiteKeys, int blackKeys){
+        int k = whiteKeys | blackKeys << 4;
+        if(count > 0 && keys[count - 1] == k){
+            runs[count - 1]++;
+            return;
+        }
+        if(count == runs.length){
+            runs = Arrays.copyOf(runs, count*2);
+            keys = Arrays.copyOf(keys, count*2);
+        }
+        runs[count] = 1;
+        keys[count++] = k;
+    }
+
+    //sets the result of the stage
+    public void finish(int t, int white, int black){
+        ticks = t;
+        whiteCollisions = white;
+        blackCollisions = black;
+    }
+
+    //plays the stage again headless from the start, returning the finished game
+    public BulletGame play(){
+        King whiteKing = new King(new Point(140, 100)), blackKing = new King(new Point(450, 100));
+        BulletGame game = new BulletGame(new BulletPanel(unpack(blackPieces), unpack(whitePieces), blackKing, whiteKing, seed), whiteKing, blackKing, whiteTime, blackTime);
+        for(int r = 0; r < count; r++)
+            for(int i = 0; i < runs[r]; i++)
+                game.step(keys[r] & 15, keys[r] >>> 4);
+        return game;
+    }
+
+    //whether a game ended the way the recorded one did
+    public boolean matches(BulletGame game){
+        return game.over() && game.ticks() == ticks && game.whiteCollisions() == whiteCollisions && game.blackCollisions() == blackCollisions;
+    }
+
+    public void write(File file) throws IOException {
+        try(PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(file)))){
+            out.println("bullet replay");
+            out.println("seed " + seed);
+            out.println("chess " + whiteTime + " " + blackTime);
+            out.println("white" + piecesString(whitePieces));
+            out.println("black" + piecesString(blackPieces));
+            for(int r = 0; r < count; r++)
+                out.println("keys " + runs[r] + " " + (keys[r] & 15) + " " + (keys[r] >>> 4));
+            if(ticks >= 0)
+                out.println("result " + ticks + " " + whiteCollisions + " " + blackCollisions);
+        }
+    }
+
+    public static BulletReplay read(File file) throws IOException {
+        try(BufferedReader in = new BufferedReader(new FileReader(file))){
+            if(!"bullet replay".equals(in.readLine()))
+                throw new IOException("not a bullet replay: " + file);
+            long seed = Long.parseLong(field(in.readLine(), "seed")[0]);
+            String[] chess = field(in.readLine(), "chess");
+            BulletReplay replay = new BulletReplay(seed, Integer.parseInt(chess[0]), Integer.parseInt(chess[1]),
+                    parsePieces(field(in.readLine(), "white")), parsePieces(field(in.readLine(), "black")));
+            for(String line = in.readLine(); line != null; line = in.readLine()){
+                if(line.startsWith("keys ")){
+                    String[] k = field(line, "keys");
+                    for(int i = Integer.parseInt(k[0]); i > 0; i--)
+                        replay.record(Integer.parseInt(k[1]), Integer.parseInt(k[2]));
+                }
+                else if(line.startsWith("result ")){
+                    String[] r = field(line, "result");
+                    replay.finish(Integer.parseInt(r[0]), Integer.parseInt(r[1]), Integer.parseInt(r[2]));
+                }
+            }
+            return replay;
+        }
+    }
+
+    //the values of a line starting with a name
+    private static String[] field(String line, String name) throws IOException {
+        if(line == null || !(line + " ").startsWith(name + " "))
+            throw new IOException("expected " + name + " in a bullet replay, found " + line);
+        String rest = line.substring(name.length()).trim();
+        return rest.isEmpty() ? new String[0] : rest.split("\\s+");
+    }
+
+    //pieces as type and capture time packed into an int (type in the low three bits), and back
+    private static int[] pack(ArrayList<GamePiece> pieces){
+        int[] packed = new int[pieces.size()];
+        for(int i = 0; i < packed.length; i++)
+            packed[i] = pieces.get(i).getType() | pieces.get(i).getTime() << 3;
+        return packed;
+    }
+    private static ArrayList<GamePiece> unpack(int[] packed){
+        ArrayList<GamePiece> pieces = new ArrayList<>();
+        for(int p: packed){
+            GamePiece piece;
+            switch(p & 7){
+                case Board.PAWN:
+                    piece = new Pawn(new Point(0, 0), true);
+                    break;
+                case Board.KNIGHT:
+                    piece = new Knight(new Point(0, 0));
+                    break;
+                case Board.BISHOP:
+                    piece = new Bishop(new Point(0, 0));
+                    break;
+                case Board.ROOK:
+                    piece = new Rook(new Point(0, 0));
+                    break;
+                default:
+                    piece = new Queen(new Point(0, 0));
+            }
+            pieces.add(piece.setTime(p >> 3));
+        }
+        return pieces;
+    }
+    private static String piecesString(int[] packed){
+        StringBuilder s = new StringBuilder();
+        for(int p: packed)
+            s.append(' ').append(p & 7).append(':').append(p >> 3);
+        return s.toString();
+    }
+    private static int[] parsePieces(String[] fields){
+        int[] packed = new int[fields.length];
+        for(int i = 0; i < fields.length; i++){
+            String[] parts = fields[i].split(":");
+            packed[i] = Integer.parseInt(parts[0]) | Integer.parseInt(parts[1]) << 3;
+        }
+        return packed;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if(args.length < 1){
+            System.out.println("usage: java BulletReplay <replay file> [times]");
+            System.exit(1);
+        }
+        BulletReplay replay = read(new File(args[0]));
+        int times = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+
+        long start = System.nanoTime(), played = 0;
+        BulletGame game = null;
+        for(int i = 0; i < times; i++){
+            game = replay.play();
+            played += game.ticks();
+        }
+        long nanos = System.nanoTime() - start;
+
+        System.out.printf("%d ticks, collisions %d-%d (recorded: %d ticks, %d-%d): %s%n", game.ticks(), game.whiteCollisions(), game.blackCollisions(),
+                replay.ticks, replay.whiteCollisions, replay.blackCollisions, replay.matches(game) ? "same" : "DIFFERENT");
+        System.out.printf("%d ticks in %.2f s (%.0f ticks/second)%n", played, nanos/1e9, played/(nanos/1e9));
+    }
+}
@@ -2,17 +2,23 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
 import java.awt.image.BufferStrategy;
+import java.awt.image.BufferedImage;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Timer;
 import java.util.TimerTask;
 import static java.awt.event.KeyEvent.*;
 import java.io.*;
-import javax.sound.sampled.*;
 
 /*  Mini-Chess, By Scott Stewart
  *  
  *  A combination of a minimalistic version of chess with a bullet-hell style game based on
- *  chess performance. Mute/unmute with m and undo/redo with u.
+ *  chess performance. Mute/unmute with m, undo with u and redo with r.
+ *
+ *  Either side (or both) can be played by the computer: java ChessGame white|black|both [seconds] [mb]
+ *  [threads], where seconds is the chess time the computer may use over the game (300 by default), mb
+ *  the size of its transposition table in megabytes (64 by default) and threads the number of cores
+ *  it searches on (all of them by default).
  *
  *  Control mainly goes through the following path throughout the program: main() during
  *  initialization, mousePressed() (and ChessPanel) during chess, and BulletThread's run()
@@ -21,28 +27,71 @@ import javax.sound.sampled.*;
 
 public class ChessGame implements MouseListener, KeyListener{
     //declarations for assorted fields used throughout the game
-    private static ArrayList<GamePiece> black, white, removedBlack, removedWhite, undoBlack, undoWhite;
+    private static ArrayList<GamePiece> black, white, removedBlack, removedWhite;
+    private static Board board;
     private static JPanel overall;
     private static ChessPanel panel;
     private static BulletPanel bulletPanel;
     private static boolean whiteTurn, bulletGame, musicOn;
+
+    //the kings in check (null if not) and whether the chess game is over, worked out once per move by updateStatus so painting does no rules work
+    private static GamePiece whiteChecked, blackChecked;
+    private static boolean gameOver;
+
+    //moves taken back, most recent last, for redo (the moves played are kept by the board's own undo stack)
+    private static int[] redoMoves = new int[64];
+    private static int redoCount;
     private static JFrame frame;
     private static King blackKing, whiteKing;
-    private static Clip clip;
-    private static int whiteTime, blackTime, whiteCollisions, blackCollisions, staleCount;
+    private static MusicPlayer music = new MusicPlayer();
+    private static int whiteTime, blackTime;
     private static Timer time;
 
+    //the bullet stage's rules, and the keys (King direction bits) each side holds, set by the key listener and read once per tick
+    private static BulletGame bullet;
+    private static volatile int whiteKeys, blackKeys;
+
+    //the bullet stage's HUD text, each part kept as an image until what it says changes
+    private static final Font hudFont = new Font("Serif", Font.ITALIC, 10);
+    private static HudText whiteStats = new HudText(hudFont, Color.BLACK), whiteClock = new HudText(hudFont, Color.BLACK), fpsText = new HudText(hudFont, Color.BLACK);
+    private static HudText blackStats = new HudText(hudFont, Color.WHITE), blackClock = new HudText(hudFont, Color.WHITE);
+
+    //bullet stage frames per second, and whether frames follow the screen's refresh instead (java -Dfps=120 or -Dvsync=true)
+    private static int frameRate = Integer.getInteger("fps", 60);
+    private static boolean vsync = Boolean.getBoolean("vsync");
+
+    //which sides the computer plays, and the chess time it may use per side over the game
+    private static boolean[] engine = new boolean[2];
+    private static int engineSeconds = 300;
+    private static int engineThreads = Runtime.getRuntime().availableProcessors();
+    private static TranspositionTable table;
+    private static volatile ParallelSearch thinking;
+
     //accessor methods for time (for chess game)
     public static int getWhiteTime(){ return whiteTime;}
     public static int getBlackTime(){ return blackTime;}
 
     //called on execution of the gaeme
     public static void main(String[] args){
+        //choose the sides the computer plays, and its time
+        if(args.length > 0){
+            engine[Board.WHITE] = args[0].equals("white") || args[0].equals("both");
+            engine[Board.BLACK] = args[0].equals("black") || args[0].equals("both");
+        }
+        if(args.length > 1)
+            engineSeconds = Integer.parseInt(args[1]);
+        if(engine[Board.WHITE] || engine[Board.BLACK])
+            table = new TranspositionTable(args.length > 2 ? Integer.parseInt(args[2]) : 64);
+        if(args.length > 3)
+            engineThreads = Integer.parseInt(args[3]);
+
+        //the bullet stage's anti-aliasing (java -Daa=off, on or quality; q cycles it while playing)
+        int aa = Arrays.asList("off", "on", "quality").indexOf(System.getProperty("aa", "on"));
+        BulletPanel.setAntialiasing(aa >= 0 ? aa : BulletPanel.AA_ON);
+
         //loop the initial music (Mozart Rondo Alla Turca)
         try{
-            clip = AudioSystem.getClip();
-            clip.open(AudioSystem.getAudioInputStream(new File("Rondo.wav")));
-            clip.loop(Clip.LOOP_CONTINUOUSLY);
+            music.loop(new File("Rondo.wav"));
             musicOn = true;
         }catch (Exception e){
        	    e.printStackTrace();
@@ -58,45 +107,18 @@ public class ChessGame implements MouseListener, KeyListener{
         removedBlack = new ArrayList<>();
         removedWhite = new ArrayList<>();
 
-        //add pawns
-        for(int i = 0; i < 8; i++){
-            black.add(new Pawn(new Point(i,1), false));
-            white.add(new Pawn(new Point(i,6), true));
-        }
-
-        //instantiate black pieces
-        black.add(new Rook(new Point(0,0)));
-        black.add(new Rook(new Point(7,0)));
-        black.add(new Knight(new Point(1,0)));
-        black.add(new Knight(new Point(6,0)));
-        black.add(new Bishop(new Point(2,0)));
-        black.add(new Bishop(new Point(5,0)));
-        black.add(new Queen(new Point(3,0)));
-        black.add(new King(new Point(4,0)));
-
-        //instantiate white pieces
-        white.add(new Rook(new Point(0,7)));
-        white.add(new Rook(new Point(7,7)));
-        white.add(new Knight(new Point(1,7)));
-        white.add(new Knight(new Point(6,7)));
-        white.add(new Bishop(new Point(2,7)));
-        white.add(new Bishop(new Point(5,7)));
-        white.add(new Queen(new Point(3,7)));
-        white.add(new King(new Point(4,7)));
-            
-        //find black king piece, set it to field
-        for (GamePiece p : black)
-            if (p.getID().equals("K"))
-                blackKing = (King) p;
+        //set up the starting position and derive the black/white lists from it
+        board = Board.standard();
+        board.listPieces(Board.BLACK, black);
+        board.listPieces(Board.WHITE, white);
 
-        //find white king piece, set it to field
-        for (GamePiece p : white)
-            if (p.getID().equals("K"))
-                whiteKing = (King) p;
+        //find king pieces, set them to fields
+        blackKing = (King) board.pieceAt(board.kingSquare(Board.BLACK));
+        whiteKing = (King) board.pieceAt(board.kingSquare(Board.WHITE));
 
         //instantiate panels
         panel = new ChessPanel(black, white, removedBlack, removedWhite);
-        bulletPanel = new BulletPanel(removedBlack, removedWhite, black.get(black.size()-1), white.get(white.size()-1));
+        bulletPanel = new BulletPanel(removedBlack, removedWhite, blackKing, whiteKing);
 
         //instantiate cards (for panel switching) and add panel/bulletpanel, showing chess initially
         //note, bulletPanel is added seemingly unnecessarily, but the canvas used later has an anamolous error on clearing that is fixed by adding the bulletPanel, so it has a vestigial (and frustrating) function
@@ -116,10 +138,13 @@ public class ChessGame implements MouseListener, KeyListener{
         frame.addMouseListener(new ChessGame());
         frame.addKeyListener(new ChessGame());
 
-        //set times to 0, stalemate count to 0, start timer
-        whiteTime = blackTime = staleCount = 0;
+        //set times to 0, start timer
+        whiteTime = blackTime = 0;
         time = new Timer();
         time.schedule(new IncTime(), 0, 1000);
+
+        //let the computer open if it plays white
+        startEngine();
     }
     private static class IncTime extends TimerTask {//increment time every second, depending on which person is waiting
         public void run(){
@@ -127,12 +152,16 @@ public class ChessGame implements MouseListener, KeyListener{
                 whiteTime++;
             else
                 blackTime++;
-            panel.repaint();
+
+            //stop the computer thinking once its side has used all of its time (it plays the best move found so far)
+            ParallelSearch search = thinking;
+            if(search != null && engine[whiteTurn ? Board.WHITE : Board.BLACK] && (whiteTurn ? whiteTime : blackTime) >= engineSeconds)
+                search.stop();
+            panel.repaintClocks();
         }
     }
 
     //Returns the piece at a given point out of a given array list, returning null if none are found
-    //Public because it is often used in GamePiece and subclasses
     public static GamePiece findPiece(ArrayList<GamePiece> pieces, Point p){
         for(GamePiece piece: pieces)
             if(piece.getLocation().equals(p))
@@ -146,18 +175,12 @@ public class ChessGame implements MouseListener, KeyListener{
         Point gridPoint = new Point(e.getX() / 50, (e.getY() - 25) / 50);
         GamePiece clicked = panel.activePiece();
 
-        //define friend (moving) and foe lists
-        ArrayList<GamePiece> friend, foe, foeRM;
-        if(whiteTurn) {
-            friend = white;
-            foe = black;
-            foeRM = removedBlack;
-        }
-        else{
-            friend = black;
-            foe = white;
-            foeRM = removedWhite;
-        }
+        //the computer's moves aren't clicked
+        if(engine[board.sideToMove()])
+            return;
+
+        //define friend (moving) list
+        ArrayList<GamePiece> friend = whiteTurn ? white : black;
 
         //if none are already clicked, select piece on grid
         if(clicked == null){
@@ -166,69 +189,18 @@ public class ChessGame implements MouseListener, KeyListener{
             //if there is a piece at mouse click, activate the piece and set active moves to trimmed set of moves
             if(clicked != null){
                 panel.activate(clicked);
-                panel.setMoves(trimMoves(clicked, friend, foe));
+                panel.setMoves(trimMoves(clicked));
             }
         }//if there is an active piece, get location and move
         else{
-            //find if point clicked is on any legal moves
-            boolean hasPoint = false;
-            for(Point p: panel.getMoves())
-                hasPoint = hasPoint || p.equals(gridPoint);
+            //find if point clicked is on any legal moves (looked up from the moves found for this position)
+            int from = Board.square(clicked.getLocation());
+            boolean hasPoint = Board.onBoard(gridPoint) && (board.legalMoves(from) & 1L << Board.square(gridPoint)) != 0;
 
-            
-            //if move is legal
-            if(hasPoint){
-                //move contributes to stalemate count if no pawn is moved and no pieces are captured
-                boolean staleMove = true;
-                
-                //set pieces for undo to deep type/location copies of their counterparts, adding kings which are unnaded in doublePieces()
-                undoWhite = doublePieces(white);
-                undoWhite.add(whiteKing);
-                undoBlack = doublePieces(black);
-                undoBlack.add(blackKing);
-
-                //find the foe on that move (if any) and remove it, setting time of capture
-                for (int x = 0; x < foe.size(); x++)
-                    if (foe.get(x).getLocation().equals(gridPoint)) {
-                        if(whiteTurn)
-                            foe.get(x).setTime(whiteTime);
-                        else
-                            foe.get(x).setTime(blackTime);
-
-                        foeRM.add(foe.remove(x));
-
-                        staleMove = false;
-                    }
+            //if move is legal, play it
+            if(hasPoint)
+                playMove(board.toMove(from, Board.square(gridPoint)));
 
-                //if the move is castling (king moves 2), also move rook
-                int y = clicked.getLocation().getY(), x = clicked.getLocation().getX();
-                if(clicked.getID().equals("K") && y==gridPoint.getY() && Math.abs(x - gridPoint.getX())==2)
-                    if(x > gridPoint.getX())
-                        findPiece(friend, new Point(0, y)).setLocation(new Point(3, y));
-                    else
-                        findPiece(friend, new Point(7, y)).setLocation(new Point(5, y));
-
-                //move the clicked piece to the new location
-                clicked.setLocation(gridPoint);
-
-                //if the piece was a pawn moved to the edge, replace it with a queen
-                if(clicked.getID().equals("P")){
-                    if(clicked.getLocation().getY() == 0 || clicked.getLocation().getY() == 7){
-                        friend.remove(friend.indexOf(clicked));
-                        friend.add(new Queen(clicked.getLocation()));
-                    }
-                    staleMove = false;
-                }
-
-                //count toward stalemate count (stalemate at 50 successive moves) if it follows the relevant rules, otherwise reset counter
-                if(staleMove)
-                    staleCount++;
-                else
-                    staleCount = 0;
-
-                //give the turn to the other player
-                whiteTurn = !whiteTurn;
-            }
             //return board to a neutral (unhighlighted) state
             panel.deactivate();
         }
@@ -237,89 +209,150 @@ public class ChessGame implements MouseListener, KeyListener{
         panel.repaint();
     }
 
-    //trim moves list to only moves that wouldn't put you in check
-    private static ArrayList<Point> trimMoves(GamePiece p, ArrayList<GamePiece> friendPieces, ArrayList<GamePiece> foePieces) {
-        //get raw moves (before trimming)
-        ArrayList<Point> moves = p.getMoves(friendPieces, foePieces);
-
-        //move clicked piece to all possible locations
-        GamePiece temp;
-        Point origLoc = p.getLocation();
-        for (int i = 0; i < moves.size(); i++) {
-            //move clicked piece to location of move
-            p.setLocation(moves.get(i));
-
-            //if there is a foe at the potential move, save it in a temporary variable, and remove the foe
-            int ind = foePieces.indexOf(findPiece(foePieces, moves.get(i)));
-            temp = null;
-            if (ind != -1)
-                temp = foePieces.remove(ind);
-
-            //if you are still in check, the move is illegal, and is removed from the list
-            if (inCheck(friendPieces, foePieces) != null) {
-                moves.remove(i);
-                i--;
-            }
-            //if the foe was removed earlier, add it back
-            if (ind != -1)
-                foePieces.add(temp);
+    //plays a legal move for the side to move, whether clicked or chosen by the computer (a new move ends any redo)
+    private static void playMove(int move){
+        redoCount = 0;
+        applyMove(move);
+        refresh();
+    }
+
+    //makes a move on the board, adding any captured piece to the foe removed list
+    private static void applyMove(int move){
+        //find the foe on that move (if any), setting time of capture
+        GamePiece captured = board.pieceAt(Move.to(move));
+        if(captured != null){
+            if(whiteTurn)
+                captured.setTime(whiteTime);
+            else
+                captured.setTime(blackTime);
+
+            (whiteTurn ? removedBlack : removedWhite).add(captured);
         }
-        //reset the clicked piece to its original location after parsing move list
-        p.setLocation(origLoc);
 
-        //return all potential trimmed moves
-        return moves;
+        //play the move (removing the foe, moving the rook when castling, promoting a pawn at the edge to a queen, and counting toward stalemate)
+        board.makeMove(move);
+        whiteTurn = board.sideToMove() == Board.WHITE;
     }
 
-    //Returns king if the "friend" is in check, null otherwise
-    //Public due to use in ChessPanel
-    public static GamePiece inCheck(ArrayList<GamePiece> friendPieces, ArrayList<GamePiece> foePieces){
-        //add all enemy moves to arraylist in order to see if any can attack king
-        ArrayList<Point> enemyMoves = new ArrayList<>();
-        for(GamePiece p: foePieces)
-            if(p.getID().equals("K")){//add simple king moves to avoid indirect recursion
-                enemyMoves.add(new Point(p.getLocation()).incX(1));
-                enemyMoves.add(new Point(p.getLocation()).incX(-1));
-                enemyMoves.add(new Point(p.getLocation()).incY(1));
-                enemyMoves.add(new Point(p.getLocation()).incY(-1));
-                enemyMoves.add(new Point(p.getLocation()).incX(1).incY(1));
-                enemyMoves.add(new Point(p.getLocation()).incX(1).incY(-1));
-                enemyMoves.add(new Point(p.getLocation()).incX(-1).incY(1));
-                enemyMoves.add(new Point(p.getLocation()).incX(-1).incY(-1));
-            }
-            else//add moves of all pieces to enemyMoves
-                enemyMoves.addAll(p.getMoves(foePieces, friendPieces));
+    //takes back the last move, keeping it for redo (and the computer's move before it, so the player gets their own turn back)
+    private static void undo(){
+        while(board.ply() > 0){
+            int move = board.lastMove();
+            board.unmakeMove();
+            whiteTurn = board.sideToMove() == Board.WHITE;
 
-        //get king piece
-        King k = new King(new Point(0,0));
-        for(GamePiece p: friendPieces)
-            if(p.getID().equals("K"))
-                k = (King) p;
+            //a captured piece goes back on the board from the end of the removed list (it was the last one added)
+            ArrayList<GamePiece> foeRM = whiteTurn ? removedBlack : removedWhite;
+            if(Move.isCapture(move) && !foeRM.isEmpty())
+                foeRM.remove(foeRM.size() - 1);
 
-        //if any potential enemy moves kill the king (check), return the king
-        for(Point pt: enemyMoves)
-            if(pt.equals(k.getLocation()))
-                return k;
+            if(redoCount == redoMoves.length)
+                redoMoves = Arrays.copyOf(redoMoves, redoCount*2);
+            redoMoves[redoCount++] = move;
 
-        //otherwise, return null
-        return null;
+            if(!engine[board.sideToMove()] || engine[1 - board.sideToMove()])
+                break;
+        }
+        refresh();
+    }
+
+    //plays the last move taken back again (and the computer's reply after it)
+    private static void redo(){
+        while(redoCount > 0){
+            applyMove(redoMoves[--redoCount]);
+            if(!engine[board.sideToMove()] || engine[1 - board.sideToMove()])
+                break;
+        }
+        refresh();
+    }
+
+    //brings the piece lists, check highlights and game state up to the board after a move, undo or redo, and starts the computer if it is to move
+    private static void refresh(){
+        //update the piece lists (and locations) from the new position
+        board.listPieces(Board.WHITE, white);
+        board.listPieces(Board.BLACK, black);
+
+        //give the turn to the other player, who may be the computer, unless the move ended the game
+        updateStatus();
+        startEngine();
+    }
+
+    //works out check and the end of the game for the position just reached (after a move or an undo), ending the chess game if it is over
+    private static void updateStatus(){
+        whiteChecked = board.inCheck(Board.WHITE) ? board.pieceAt(board.kingSquare(Board.WHITE)) : null;
+        blackChecked = board.inCheck(Board.BLACK) ? board.pieceAt(board.kingSquare(Board.BLACK)) : null;
+        checkmate();
+    }
+
+    //starts the computer thinking in its own thread if it is to move and the game isn't over
+    private static void startEngine(){
+        //a search of a position no longer on the board (as after an undo) is stopped, and its move will be dropped (even if the position comes back)
+        ParallelSearch old = thinking;
+        if(old != null)
+            old.stop();
+        thinking = null;
+
+        int color = board.sideToMove();
+        if(!engine[color] || gameOver)
+            return;
+
+        //spend an even share of the time left over an assumed 30 more moves (at least a fifth of a second)
+        int used = color == Board.WHITE ? whiteTime : blackTime;
+        long millis = Math.max(200, (engineSeconds - used)*1000L/30);
+        thinking = new ParallelSearch(table, engineThreads);
+        new Thread(new EngineThread(thinking, board.copy(), millis)).start();
     }
 
-    //return name of person in checkmate, null otherwise
-    public static void checkmate(){
-        //add all potential white moves to one list
-        ArrayList<Point> moves = new ArrayList<>();
-        for (GamePiece p : white)
-            moves.addAll(trimMoves(p, white, black));
-        //if there are no potential moves (or it's been 50 successive stalemate moves), white is in checkmate or stalemate, remove mouselisteners, start a thread for the bullet game loop (to allow keylisteners)
-        if(staleCount >= 50 || moves.size() == 0) {
+    //searches a copy of the position, then plays the move found on the event thread (unless the position changed meanwhile, as by an undo)
+    private static class EngineThread implements Runnable{
+        private ParallelSearch search;
+        private Board position;
+        private long millis;
+        public EngineThread(ParallelSearch s, Board b, long ms){
+            search = s;
+            position = b;
+            millis = ms;
+        }
+        public void run(){
+            final int move = search.search(position, millis);
+            System.out.println(search);
+
+            final long hash = position.hash();
+            SwingUtilities.invokeLater(new Runnable(){
+                public void run(){
+                    if(move == 0 || thinking != search || bulletGame || board.hash() != hash || !engine[board.sideToMove()])
+                        return;
+                    panel.deactivate();
+                    playMove(move);
+                    panel.repaint();
+                }
+            });
+        }
+    }
+
+    //trim moves list to only moves that wouldn't put you in check (a lookup once the position's legal moves are known)
+    private static ArrayList<Point> trimMoves(GamePiece p) {
+        return Board.toPoints(board.legalMoves(Board.square(p.getLocation())));
+    }
+
+    //Returns king if the given color is in check, null otherwise (as of the last move)
+    //Public due to use in ChessPanel
+    public static GamePiece inCheck(int color){
+        return color == Board.WHITE ? whiteChecked : blackChecked;
+    }
+
+    //ends the chess game if either side is in checkmate or stalemate
+    private static void checkmate(){
+        //if white has no potential moves (or it's been 50 successive moves without a capture or pawn move), white is in checkmate or stalemate, remove mouselisteners, start a thread for the bullet game loop (to allow keylisteners)
+        if(board.status(Board.WHITE) != Board.PLAYING) {
+            gameOver = true;
             time.cancel();
             if(frame.getMouseListeners().length>0)
                 frame.removeMouseListener(frame.getMouseListeners()[0]);
             
             //if in check, double pieces, otherwise it's a stalemate so the pieces shouldn't be doubled
             Thread t;
-            if(inCheck(white, black) != null)
+            if(inCheck(Board.WHITE) != null)
                 t = new Thread(new BulletThread(removedWhite));
             else
                 t = new Thread(new BulletThread(new ArrayList<>()));
@@ -328,16 +361,14 @@ public class ChessGame implements MouseListener, KeyListener{
         }
 
         //same for black
-        moves = new ArrayList<>();
-        for (GamePiece p : black)
-            moves.addAll(trimMoves(p, black, white));
-        if (moves.size() == 0) {
+        if (board.status(Board.BLACK) != Board.PLAYING) {
+            gameOver = true;
             time.cancel();
             if(frame.getMouseListeners().length>0)
                 frame.removeMouseListener(frame.getMouseListeners()[0]);
             
             Thread t;
-            if(inCheck(black, white) != null)
+            if(inCheck(Board.BLACK) != null)
                 t = new Thread(new BulletThread(removedBlack));
             else
                 t = new Thread(new BulletThread(new ArrayList<>()));
@@ -345,46 +376,13 @@ public class ChessGame implements MouseListener, KeyListener{
         }
     }
 
-    //class to transition music in its own thread (to ensure smooth playback regardless of any lag)
-    //music is taken from Stompbox, by the Qemists (Spor remix)
-    private static class ClipThread implements Runnable, LineListener{
-        private Clip temp;
-        public void run(){
-            try {
-                //leave a 1/10 second gap then play the transition music
-                clip.stop();
-                Thread.sleep(100);
-                clip = AudioSystem.getClip();
-                clip.open(AudioSystem.getAudioInputStream(new File("Transition.wav")));
-                if(musicOn)
-                    clip.start();
-                
-                //instantiate looped music as its own clip to ease transition to second part
-                temp = AudioSystem.getClip();
-                temp.open(AudioSystem.getAudioInputStream(new File("Stompbox.wav")));
-
-                clip.addLineListener(this);
-            }catch(Exception e){e.printStackTrace();}
-        }
-        //when the transition music stops, immidiately play the looped section and set clip to the previously temporary object
-        public void update(LineEvent event){
-            try{
-                if(event.getType() == LineEvent.Type.STOP){ 
-                    if(musicOn)
-                        temp.loop(Clip.LOOP_CONTINUOUSLY);
-                    clip = temp;
-                }
-            }catch(Exception e){e.printStackTrace();}
-        }
-    }
-   
     //creates an arrayList of new pieces of the same types (non-king) of pieces
     private static ArrayList<GamePiece> doublePieces(ArrayList<GamePiece> original){ 
         ArrayList<GamePiece> newPieces = new ArrayList<>();
         for (GamePiece p : original)
             switch (p.getID()) {
                 case "P":
-                    newPieces.add(new Pawn(new Point(p.getLocation()), true).setTime(p.getTime()));
+                    newPieces.add(new Pawn(new Point(p.getLocation()), ((Pawn) p).isWhite()).setTime(p.getTime()));
                     break;
                 case "R":
                     newPieces.add(new Rook(new Point(p.getLocation())).setTime(p.getTime()));
@@ -410,29 +408,33 @@ public class ChessGame implements MouseListener, KeyListener{
         return seconds/60000 + "." + String.format("%02d", (seconds/1000)%60) + "." + String.format("%03d", seconds%1000);
     }
 
+    //font and colors of the end of game text (a translucent tan box outlined in burnt sienna, with red text)
+    private static final Font END_FONT = new Font("Arial", Font.BOLD, 50);
+    private static final Color END_FILL = new Color(235,177,133,225), END_BORDER = new Color(153,51,0), END_TEXT = new Color(255,0,0);
+
     //text for stalemate
     private static void chessEndText(Graphics graphics, ArrayList<GamePiece> addTo){
-        graphics.setFont(new Font("Arial", Font.BOLD, 50));
-        graphics.setColor(new Color(235,177,133,225));
+        graphics.setFont(END_FONT);
+        graphics.setColor(END_FILL);
         if(addTo.size() == 0){
             graphics.fillRect(90, 170, 270, 60);
-            graphics.setColor(new Color(153,51,0));
+            graphics.setColor(END_BORDER);
             graphics.drawRect(90, 170, 270, 60);
-            graphics.setColor(new Color(255,0,0));
+            graphics.setColor(END_TEXT);
             graphics.drawString("Stalemate.", 100, 220);
         }
         else if(whiteTurn){
             graphics.fillRect(40, 170, 520, 60);
-            graphics.setColor(new Color(153,51,0));
+            graphics.setColor(END_BORDER);
             graphics.drawRect(40, 170, 520, 60);
-            graphics.setColor(new Color(255,0,0));
+            graphics.setColor(END_TEXT);
             graphics.drawString("Checkmate on White.", 50, 220);
         }
         else{
             graphics.fillRect(40, 170, 520, 60);
-            graphics.setColor(new Color(153,51,0));
+            graphics.setColor(END_BORDER);
             graphics.drawRect(40, 170, 520, 60);
-            graphics.setColor(new Color(255,0,0));
+            graphics.setColor(END_TEXT);
             graphics.drawString("Checkmate on Black.", 50, 220);
         }
     }
@@ -464,38 +466,41 @@ public class ChessGame implements MouseListener, KeyListener{
             ((CardLayout) overall.getLayout()).show(overall, "Canvas");
 	        //set the canvas background to mimic chess board, paint initial grid, and show the canvas
             canvas.setBackground(Color.WHITE);
+
+            //the final chess scene (the board and the text for the end of the game) is drawn once, then copied to each step of the fade
+            BufferedImage chessScene = BulletPanel.image(Math.max(600, canvas.getWidth()), Math.max(400, canvas.getHeight()), Transparency.OPAQUE);
+            Graphics sceneGraphics = chessScene.getGraphics();
+            sceneGraphics.setColor(new Color(255,225,175));
+            sceneGraphics.fillRect(0,0,1000,1000);
+            panel.paintAll(sceneGraphics);
+            chessEndText(sceneGraphics, addTo);
+            sceneGraphics.dispose();
+
             Graphics graphics = buffer.getDrawGraphics();
-            graphics.setColor(new Color(255,225,175));
-            graphics.fillRect(0,0,1000,1000);
-            panel.paintAll(graphics);
-            
-            chessEndText(graphics, addTo);
+            graphics.drawImage(chessScene, 0, 0, null);
 
             if(!buffer.contentsLost())
                 buffer.show();
                 
             try{Thread.sleep(5000);}catch(Exception e){e.printStackTrace();}
             
-            //start thread to facilitate music transition
-	        Thread music = new Thread(new ClipThread());
-            music.start();
+            //switch the music to the transition, then loop Stompbox, by the Qemists (Spor remix), straight after it
+            try{
+                music.play(new File("Transition.wav"), new File("Stompbox.wav"));
+            }catch(Exception e){e.printStackTrace();}
 
             long startTime = System.nanoTime();
-            //begin transition (fade to burnt sienna) over a measure, using a buffer (sleeping the time between when it should be and the current time in order to avoid lag ruining transition time)
+            //begin transition (fade to burnt sienna) over a measure, using a buffer (parking until the time each step should end, in order to avoid lag ruining transition time)
             for(double i = 1; i <= 255; i+=255.0/100) {
                 graphics = buffer.getDrawGraphics();
-                graphics.setColor(new Color(255,225,175));
-                graphics.fillRect(0,0,1000,1000);
-                panel.paintAll(graphics);
-
-                chessEndText(graphics, addTo);
+                graphics.drawImage(chessScene, 0, 0, null);
 
                 //fade background progressively to burnt sienna (grid color) through increasing alpha (opacity) values
                 graphics.setColor(new Color(153,51,0,(int) i));
                 graphics.fillRect(0,0,1000,1000);
                 if (!buffer.contentsLost())
                     buffer.show();
-                try{Thread.sleep((long) ((startTime+285000000L/255.0*i - System.nanoTime())/1000000.0));}catch(Exception e){}
+                FrameScheduler.parkUntil(startTime + (long) (285000000L/255.0*i));
             }
 
             //fade to black using the same strategy (with a variable-alpha black color over opaque burnt sienna) over a measure, further buffered to mitigate any leftover lag from the first loop
@@ -508,9 +513,10 @@ public class ChessGame implements MouseListener, KeyListener{
                 graphics.fillRect(0,0,1000,1000);
                 if (!buffer.contentsLost())
                     buffer.show();
-                try{Thread.sleep((long) ((startTime+2850000000L+2971000000L/255.0*i - System.nanoTime())/1000000.0));}catch(Exception e){}
+                FrameScheduler.parkUntil(startTime + 2850000000L + (long) (2971000000L/255.0*i));
             }
-            //fade one side to white the same way over one measure, unbuffered due to the low lag potential
+            //fade one side to white the same way over one measure, 10 milliseconds a step
+            long whiteStart = System.nanoTime();
             for(int i = 1; i <= 255; i++){
                 graphics = buffer.getDrawGraphics();
 
@@ -518,7 +524,7 @@ public class ChessGame implements MouseListener, KeyListener{
                 graphics.fillRect(0,0,300,450);
                 if (!buffer.contentsLost())
                     buffer.show();
-                try{Thread.sleep(10);}catch(Exception e){}
+                FrameScheduler.parkUntil(whiteStart + 10000000L*i);
             }
 
             //define dialogue per side (to easily reference)
@@ -584,70 +590,54 @@ public class ChessGame implements MouseListener, KeyListener{
                 try{Thread.sleep(2791);}catch(Exception e){}
             }
 
+            //start the stage's rules (recording the keys played for a replay)
+            bullet = new BulletGame(bulletPanel, whiteKing, blackKing, whiteTime, blackTime);
+
             //assorted declarations and initializations for the game loop
-            final double nanoPerTics = 1000000000 / 60;
+            final double nanoPerTics = 1000000000 / BulletGame.TICKS_PER_SECOND;
             final int max = 5;
-            final long timePerDub = 10000000000L;
-            double last = System.nanoTime()-nanoPerTics, now = System.nanoTime(), FPSTime=0, FPS=0, lastDub=0;
-            int updates, frames=0, whiteTimeLeft, blackTimeLeft;
-            boolean running = true, suddenDeath = false;
-
-            //game loop; updates the logic and renders the game as long as one side is still running, according to a particular game speed, limiting frame rate
-            while (running || suddenDeath){
-                //increment the time since the last frame rate calculation
-                FPSTime += now - last;
+            double last = System.nanoTime()-nanoPerTics, now = System.nanoTime();
+            int updates, whiteTimeLeft, blackTimeLeft;
+            FrameScheduler pacer = new FrameScheduler(frameRate, vsync);
 
+            //game loop; updates the logic and renders the game until the stage is over, according to a particular game speed, limiting frame rate
+            while (!bullet.over()){
                 //update the timers, labeling time to the end normally, or time to doubling in sudden death
+                boolean suddenDeath = bullet.suddenDeath();
                 if(suddenDeath)
-                    whiteTimeLeft = blackTimeLeft = 10000 - (int) ((now-lastDub)/1000000);
+                    whiteTimeLeft = blackTimeLeft = bullet.doubleTimeLeft();
                 else{
                     whiteTimeLeft = bulletPanel.whiteTime();
                     blackTimeLeft = bulletPanel.blackTime();
                 }
 
-                //update the game logic, allowing "catch-up" (through multiple iterations of the update) of up to 5 frames, and adding any collisions to counters
+                //update the game logic a tick at a time with the keys held, allowing "catch-up" (through multiple iterations of the update) of up to 5 frames
+                //(stopping early if sudden death starts, so it is announced first)
                 updates = 0;
-                while (now - last >= nanoPerTics && updates < max) {
-                    bulletPanel.updateGame(60, suddenDeath);
-                    if (bulletPanel.white().size() > 1 && (suddenDeath || whiteTime>0))
-                        whiteCollisions += collide(whiteKing, bulletPanel.white(), 25, 265, 25, 365);
-                    if (bulletPanel.black().size() > 1 && (suddenDeath || blackTime>0))
-                        blackCollisions += collide(blackKing, bulletPanel.black(), 325, 565, 25, 365);
+                while (now - last >= nanoPerTics && updates < max && !bullet.over() && bullet.suddenDeath() == suddenDeath) {
+                    bullet.step(whiteKeys, blackKeys);
                     last += nanoPerTics;
                     updates++;
-                    frames++;
                 }
                 if (now - last > nanoPerTics) {
                     last = now - nanoPerTics;
                 }
 
                 //render the game
-                render(graphics, buffer, FPS, whiteTimeLeft, blackTimeLeft);
-                
-                //after at least a second, update the FPS counter by dividing frames by the time it took to update them (parenthesis to prevent overflow)
-                if (FPSTime > 1000000000) {
-                    FPS = frames * (1000000000 / FPSTime);
-                    FPSTime = 0;
-                    frames = 0;
-                }
+                render(graphics, buffer, pacer.fps(), whiteTimeLeft, blackTimeLeft);
 
                 //show the changes
                 if (!buffer.contentsLost())
                     buffer.show();
 
-                //check to see if the loop should continue running based on if any time is left
-                running = running && (whiteTimeLeft>0 || blackTimeLeft>0);
-                suddenDeath = suddenDeath && whiteCollisions == blackCollisions;
-                
-                //if the loop has finished its main execution and it's tied, initiate sudden death sequence
-                if(!running && !suddenDeath && whiteCollisions == blackCollisions){
-                    //set variable for sudden death to true and pause the music
-                    suddenDeath = true;
-                    clip.stop();
+                //if it's tied once time has run out, announce sudden death
+                if(!suddenDeath && bullet.suddenDeath()){
+                    //pause the music
+                    music.pause();
 
                     //alternate flashes of "SUDDEN" and "DEATH"  across the screen at random colors1/10 second apart, leaving a section of no text in between
                     for(int i = 0; i < 30; i++){
-                        render(graphics, buffer, FPS, whiteTime, blackTime);
+                        render(graphics, buffer, pacer.fps(), whiteTime, blackTime);
                         if(i%2 == 0){
                             graphics.setColor(new Color((int) (Math.random()*255),(int) (Math.random()*255), (int) (Math.random()*255)));
                             graphics.setFont(new Font("Arial", Font.BOLD, 100));
@@ -663,35 +653,26 @@ public class ChessGame implements MouseListener, KeyListener{
 
                     //turn the music back on
                     if(musicOn)
-                        clip.loop(Clip.LOOP_CONTINUOUSLY);
+                        music.resume();
                 }
 
-                //double if it's been the necessary time (will always happen at initial SD)
-                if(suddenDeath && now-lastDub > timePerDub){
-                    ArrayList<GamePiece> newBlack = doublePieces(bulletPanel.black());
-                    ArrayList<GamePiece> newWhite = doublePieces(bulletPanel.white());
-
-                    for(GamePiece p: newBlack)
-                        p.randomize(325,565,25,365);
-                    for(GamePiece p: newWhite)
-                        p.randomize(20,265,25,365);
-
-                    bulletPanel.black().addAll(newBlack);
-                    bulletPanel.white().addAll(newWhite);
-                    lastDub = System.nanoTime();
-                }
+                //sleep until the next frame is due
+                now = pacer.frame();
+            }
+            System.out.println("bullet stage: " + pacer);
 
-                //yield to other threads at least once, until it has been at least the specified time between tics
-                do {
-                    Thread.yield();
-                    now = System.nanoTime();
-                } while (now - last < nanoPerTics);
+            //save the replay of the stage (java BulletReplay bullet.replay plays it again)
+            try{
+                bullet.replay().write(new File("bullet.replay"));
+            }catch(IOException e){
+                e.printStackTrace();
             }
+
             //designate the winner
-            if(whiteCollisions < blackCollisions)
-                winner(graphics, buffer, "White", whiteTime, bulletPanel.white(), whiteCollisions, blackCollisions, 300, Color.WHITE, Color.BLACK);
+            if(bullet.whiteCollisions() < bullet.blackCollisions())
+                winner(graphics, buffer, "White", whiteTime, bulletPanel.white(), bullet.whiteCollisions(), bullet.blackCollisions(), 300, Color.WHITE, Color.BLACK);
             else
-                winner(graphics, buffer, "Black", blackTime, bulletPanel.black(), blackCollisions, whiteCollisions, 0, Color.BLACK, Color.WHITE);
+                winner(graphics, buffer, "Black", blackTime, bulletPanel.black(), bullet.blackCollisions(), bullet.whiteCollisions(), 0, Color.BLACK, Color.WHITE);
         }
     }
 
@@ -701,21 +682,27 @@ public class ChessGame implements MouseListener, KeyListener{
         graphics = buffer.getDrawGraphics();
         bulletPanel.paintComponent(graphics);
 
-        //set the font
-        graphics.setFont(new Font("Serif", Font.ITALIC, 10));
-
-        //add the black text for pieces left, collisions, time, and FPS
-        graphics.setColor(Color.BLACK);
-        graphics.drawString("Pieces left: " + String.format("%02d", removedWhite.size()) + ".  Collisions: " + String.format("%02d", whiteCollisions) + ". Time: " + formatTime(whiteTime)+".", 25, 20);
-        graphics.drawString("FPS: " + String.format("%.1f", FPS), 25, 390);
-
-        //add the white text for pieces left, collisions, and time
-        graphics.setColor(Color.WHITE);
-        graphics.drawString("Pieces left: " + String.format("%02d", removedBlack.size()) + ".  Collisions: " + String.format("%02d", blackCollisions) + ". Time: " + formatTime(blackTime) + ".", 349, 20);
+        //add the black text for pieces left, collisions, time, and FPS, then the white text for pieces left, collisions, and time
+        //(each part is rasterized again only when the values in it change)
+        long whiteKey = removedWhite.size()*100000L + bullet.whiteCollisions(), blackKey = removedBlack.size()*100000L + bullet.blackCollisions(), fps = Math.round(FPS*10);
+        if(!whiteStats.shows(whiteKey))
+            whiteStats.set(whiteKey, "Pieces left: " + String.format("%02d", removedWhite.size()) + ".  Collisions: " + String.format("%02d", bullet.whiteCollisions()) + ". Time: ");
+        if(!whiteClock.shows(Math.max(0, whiteTime)))
+            whiteClock.set(Math.max(0, whiteTime), formatTime(whiteTime) + ".");
+        if(!fpsText.shows(fps))
+            fpsText.set(fps, "FPS: " + fps/10 + "." + fps%10);
+        whiteClock.draw(graphics, whiteStats.draw(graphics, 25, 20), 20);
+        fpsText.draw(graphics, 25, 390);
+
+        if(!blackStats.shows(blackKey))
+            blackStats.set(blackKey, "Pieces left: " + String.format("%02d", removedBlack.size()) + ".  Collisions: " + String.format("%02d", bullet.blackCollisions()) + ". Time: ");
+        if(!blackClock.shows(Math.max(0, blackTime)))
+            blackClock.set(Math.max(0, blackTime), formatTime(blackTime) + ".");
+        blackClock.draw(graphics, blackStats.draw(graphics, 349, 20), 20);
     }
 
     //execute the winning sequence (with superfluous stats)
-    private static void winner(Graphics graphics, BufferStrategy buffer, String winnerName, int winnerTime, ArrayList<GamePiece> pieces, int winnerCollisions, int loserCollisions, int leftEdge, Color box, Color text){
+    private static void winner(Graphics graphics, BufferStrategy buffer, String winnerName, int winnerTime, BulletArena pieces, int winnerCollisions, int loserCollisions, int leftEdge, Color box, Color text){
         //fade losing side to color of winning side
         for(int i = 1; i <= 255; i++){
             render(graphics, buffer, 60.0, 0, 0);
@@ -728,26 +715,7 @@ public class ChessGame implements MouseListener, KeyListener{
         }
 
         //count pieces to be displayed
-        int pawn=0, rook=0, knight=0, bishop=0, queen=0;
-        for(GamePiece p: pieces){
-            switch(p.getID()){
-                case "P":
-                    pawn++;
-                    break;
-                case "R":
-                    rook++;
-                    break;
-                case "N":
-                    knight++;
-                    break;
-                case "B":
-                    bishop++;
-                    break;
-                case "Q":
-                    queen++;
-                    break;
-            }
-        }
+        int pawn = pieces.count(Board.PAWN), rook = pieces.count(Board.ROOK), knight = pieces.count(Board.KNIGHT), bishop = pieces.count(Board.BISHOP), queen = pieces.count(Board.QUEEN);
 
         //paint the text for the winner and stats, and show
         graphics.setColor(text);
@@ -756,7 +724,7 @@ public class ChessGame implements MouseListener, KeyListener{
 
         graphics.setFont(new Font("Arial", Font.PLAIN, 25));
         graphics.drawString("Score: " + winnerCollisions + "-" + loserCollisions, leftEdge+20, 110);
-        graphics.drawString("Total Pieces: " + (pieces.size()-1), leftEdge+20, 165);
+        graphics.drawString("Total Pieces: " + pieces.size(), leftEdge+20, 165);
         graphics.drawString("Pawns: " + pawn, leftEdge+20, 203);
         graphics.drawString("Knights: " + knight, leftEdge+20, 231);
         graphics.drawString("Bishops: " + bishop, leftEdge+20, 259);
@@ -769,126 +737,92 @@ public class ChessGame implements MouseListener, KeyListener{
             buffer.show();
     }
 
-    //return the number of collisions between the king and foe pieces, randomizing the locations of any collided particles
-    private static int collide(King k, ArrayList<GamePiece> foePieces, int xmin, int xmax, int ymin, int ymax){
-        int count = 0;
-        Point loc = k.getLocation();
-        for(GamePiece p: foePieces) {
-            Point ploc = p.getLocation();
-            //p has collided with the king if the boxes of the king and p's heights and radii with their respective upper left-hand corner coordinates intersect
-            if (!p.getID().equals("K") && ((ploc.getX() > loc.getX() && ploc.getX()-loc.getX() < k.getWidth()) || (loc.getX() > ploc.getX() && loc.getX()-ploc.getX()< p.getWidth())) && ((ploc.getY() > loc.getY() && ploc.getY()-loc.getY() < k.getHeight()) || (loc.getY() > ploc.getY() &&loc.getY()-ploc.getY()< p.getHeight()))) {
-                p.randomize(xmin, xmax, ymin, ymax);
-                count++;
-            }
-        }
-        return count;
-    }
-
-    //on keypress, set a king field determining the direction with respect to the top, bottom, left, and right of its respective bounds.
+    //on keypress, set a key bit determining the direction with respect to the top, bottom, left, and right of its respective bounds (the king takes it on the next tick)
     public void keyPressed(KeyEvent e) {
         if (bulletGame) {
             switch (e.getKeyCode()) {
                 case VK_W:
-                    whiteKing.setUp(1);
+                    whiteKeys |= King.UP;
                     break;
                 case VK_A:
-                    whiteKing.setLeft(1);
+                    whiteKeys |= King.LEFT;
                     break;
                 case VK_S:
-                    whiteKing.setDown(1);
+                    whiteKeys |= King.DOWN;
                     break;
                 case VK_D:
-                    whiteKing.setRight(1);
+                    whiteKeys |= King.RIGHT;
                     break;
                 case VK_UP:
-                    blackKing.setUp(1);
+                    blackKeys |= King.UP;
                     break;
                 case VK_LEFT:
-                    blackKing.setLeft(1);
+                    blackKeys |= King.LEFT;
                     break;
                 case VK_DOWN:
-                    blackKing.setDown(1);
+                    blackKeys |= King.DOWN;
                     break;
                 case VK_RIGHT:
-                    blackKing.setRight(1);
+                    blackKeys |= King.RIGHT;
                     break;
             }
         }
     }
 
-    //on the release of a key, reset the corresponding L/R/U/D increments to zero, ending movement in that direction until keypress again
+    //on the release of a key, clear the corresponding L/R/U/D bit, ending movement in that direction until keypress again
     public void keyReleased(KeyEvent e){
         if(bulletGame){
             switch(e.getKeyCode()){
                 case VK_W:
-                    whiteKing.setUp(0);
+                    whiteKeys &= ~King.UP;
                     break;
                 case VK_A:
-                    whiteKing.setLeft(0);
+                    whiteKeys &= ~King.LEFT;
                     break;
                 case VK_S:
-                    whiteKing.setDown(0);
+                    whiteKeys &= ~King.DOWN;
                     break;
                 case VK_D:
-                    whiteKing.setRight(0);
+                    whiteKeys &= ~King.RIGHT;
                     break;
                 case VK_UP:
-                    blackKing.setUp(0);
+                    blackKeys &= ~King.UP;
                     break;
                 case VK_LEFT:
-                    blackKing.setLeft(0);
+                    blackKeys &= ~King.LEFT;
                     break;
                 case VK_DOWN:
-                    blackKing.setDown(0);
+                    blackKeys &= ~King.DOWN;
                     break;
                 case VK_RIGHT:
-                    blackKing.setRight(0);
+                    blackKeys &= ~King.RIGHT;
                     break;
             }
         }
     }
 
-    //if an M is typed, invert the mute status (music->silence and vice versa), and if u is typed in the chess game, undo the previous move
+    //if an M is typed, invert the mute status (music->silence and vice versa), if q is typed in the bullet game, change its anti-aliasing, and if u or r is typed in the chess game, undo or redo a move
     public void keyTyped(KeyEvent e){
         if (e.getKeyChar() == 'm') {
             if (musicOn)
-                clip.stop();
+                music.pause();
             else
-                clip.loop(Clip.LOOP_CONTINUOUSLY);
+                music.resume();
             musicOn = !musicOn;
         }
-        else if(!bulletGame && e.getKeyChar() == 'u'){
-            //swap the pieces with those of the previous game state and repaint
-            if(undoWhite != null){
-                swap(white, undoWhite);
-                swap(black, undoBlack);
-            }
-
-            panel.repaint();
+        else if(bulletGame && e.getKeyChar() == 'q'){
+            //cycle the bullet stage's anti-aliasing: on, best quality, off
+            BulletPanel.setAntialiasing((BulletPanel.getAntialiasing() + 1) % 3);
         }
-    }
-
-    //deeply swap two arraylists
-    public void swap(ArrayList<GamePiece> p1, ArrayList<GamePiece> p2){
-        GamePiece temp;
+        else if(!gameOver && (e.getKeyChar() == 'u' || e.getKeyChar() == 'r')){
+            //step back or forward through the moves played and repaint
+            panel.deactivate();
+            if(e.getKeyChar() == 'u')
+                undo();
+            else
+                redo();
 
-        //switch the pieces in the main-body of the arraylists
-        for(int i = 0; i < Math.min(p1.size(), p2.size()); i++){
-            temp = p1.remove(i);
-            p1.add(i, p2.remove(i));
-            p2.add(i, temp);
-        }
-        
-        //swap the pieces of different sizes (for arraylists of different sizes)
-        if(p1.size() > p2.size()){
-            int targetSize = p2.size();
-            while(p1.size() > targetSize)
-                p2.add(p1.remove(p1.size()-1));
-        }
-        else if(p2.size() > p1.size()){
-            int targetSize = p1.size();
-            while(p2.size() > targetSize)
-                p1.add(p2.remove(p2.size()-1));
+            panel.repaint();
         }
     }
 
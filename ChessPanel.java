@@ -1,7 +1,9 @@
 import javax.swing.*;
 import java.awt.*;
+import java.awt.image.BufferedImage;
 import java.util.*;
 
+@SuppressWarnings("serial")
 public class ChessPanel extends JPanel {
     //fields for black/white pieces, active (clicked) piece, active (highlighted) moves
     private ArrayList<GamePiece> black, white, removedBlack, removedWhite;
@@ -14,44 +16,59 @@ public class ChessPanel extends JPanel {
         white = wh;
         removedBlack = rb;
         removedWhite = rw;
-        setBackground(new Color(255,225,175));
-    }
-
-    //paints black squares of grid
-    public void paintGrid(Graphics g){
-        for (int i = 0; i < 400; i += 50)
-            for (int j = (i+50)%100; j < 400; j += 100)
-                g.fillRect(i, j, 50, 50);
-    }
-    //paints individual pieces
-    private void paintPiece(Graphics g, GamePiece p, Point loc, Color out, Color fill){
-        g.setColor(fill);
-        g.fillOval(loc.getX(), loc.getY(), 50, 50);
-        g.setColor(out);
-        g.drawOval(loc.getX(), loc.getY(), 50, 50);
-        g.drawString(p.getID(), loc.getX()+p.offSet(), loc.getY()+44);
-    }
-
-    //paints a set of pieces with specified outline/letter colors (out) and main colors (fill)
-    private void paintPieces(Graphics g, ArrayList<GamePiece> pieces, Color out, Color fill){
-        Point loc;
-        for(GamePiece p: pieces) {
-            loc = p.getLocation();
-            loc = new Point(loc.getX()*50, loc.getY()*50);
-            paintPiece(g, p, loc, out, fill);
+        setBackground(BACKGROUND);
+    }
+
+    //colors of the board (the panel's background, burnt sienna squares, custom blue move highlights) and of the white portion of pieces
+    private static final Color BACKGROUND = new Color(255,225,175), GRID = new Color(153,51,0), ACTIVE = new Color(102, 0, 255, 150), WH_COLOR = new Color(255,200,150);
+    private static final Font CLOCK_FONT = new Font("Arial", Font.ITALIC, 15), PIECE_FONT = new Font("Arial", Font.BOLD, 50);
+
+    //the scene as last drawn (board, move highlights, pieces and captured pieces, but not the clocks), what each square was drawn with, and the captured pieces drawn
+    //(a square's code is its piece's glyph plus one, or 0, with bits for a move highlight, the active piece, and a king in check)
+    private BufferedImage scene;
+    private int[] drawn = new int[64], codes = new int[64];
+    private String removedDrawn;
+    private static final int MOVE = 1 << 4, ACTIVE_PIECE = 1 << 5, CHECKED = 1 << 6;
+
+    //the area the clocks are drawn in
+    private static final Rectangle CLOCKS = new Rectangle(415, 188, 185, 26);
+
+    //piece glyphs (oval and letter) by color and type, with a pixel of margin for the outline, rasterized on first use
+    private static BufferedImage[][] glyphs = new BufferedImage[2][6];
+
+    //paints individual pieces from their glyphs (black pieces are dark gray outlined in the white portion color, white pieces the reverse)
+    private void paintPiece(Graphics g, GamePiece p, Point loc, int color){
+        g.drawImage(glyph(color, p), loc.getX() - 1, loc.getY() - 1, null);
+    }
+    private static BufferedImage glyph(int color, GamePiece p){
+        int type = p.getType();
+        if(glyphs[color][type] == null){
+            BufferedImage glyph = BulletPanel.image(53, 53, Transparency.TRANSLUCENT);
+            Graphics2D g = glyph.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g.setFont(PIECE_FONT);
+            g.setColor(color == Board.WHITE ? WH_COLOR : Color.DARK_GRAY);
+            g.fillOval(1, 1, 50, 50);
+            g.setColor(color == Board.WHITE ? Color.DARK_GRAY : WH_COLOR);
+            g.drawOval(1, 1, 50, 50);
+            g.drawString(p.getID(), 1 + p.offSet(), 45);
+            g.dispose();
+            glyphs[color][type] = glyph;
         }
+        return glyphs[color][type];
     }
+
     //paint removed pieces on the side
-    private void paintRemoved(Graphics g, int start, int inc, ArrayList<GamePiece> removed, Color out, Color fill) {
+    private void paintRemoved(Graphics g, int start, int inc, ArrayList<GamePiece> removed, int color) {
         Point loc = new Point(400, start);
         for (GamePiece p : removed) {
-            paintPiece(g, p, loc, out, fill);
+            paintPiece(g, p, loc, color);
             if (loc.incX(50).getX() >= 600)
                 loc = new Point(400, loc.getY() + inc);
         }
     }
 
-
     //activates a piece (highlight on click), or deactivates a piece and potential moves
     public void activate(GamePiece p){
         active = p;
@@ -85,56 +102,150 @@ public class ChessPanel extends JPanel {
     //format time to include seconds and minutes
     private String formatTime(int seconds){ return seconds/60 + ":" + String.format("%02d", seconds%60);}
 
-    //paint the board (separated from paintComponent to be callable w/o checkmate)
-    public void paintAll(Graphics gr){
+    //paint the board (separated from paintComponent to be callable from the bullet game's canvas)
+    //the scene is kept as an image, and only the squares whose piece or highlights changed since it was last drawn are drawn again
+    //(with their neighbors below and to the right, which a piece's outline reaches one pixel into), then the clocks are drawn over it
+    public synchronized void paintAll(Graphics gr){
         //cast to Graphics2D and set anti-aliasing for text and shapes
         Graphics2D g = (Graphics2D) gr;
         g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
         g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
 
-        //paint grid as custom color (burnt sienna)
-        g.setColor(new Color(153,51,0));
-        paintGrid(g);
+        //a repaint of just the clocks (the timer, every second) needs nothing but them over the scene as it is
+        Rectangle clip = g.getClipBounds();
+        if(scene != null && clip != null && CLOCKS.contains(clip)){
+            g.drawImage(scene, 0, 0, null);
+            paintClocks(g);
+            return;
+        }
 
-        //paints all potential moves (if any) as custom blue
-        Color activeColor = new Color(102, 0, 255, 150);
-        if(moves != null){
-            g.setColor(activeColor);
+        //work out what each square holds now
+        Arrays.fill(codes, 0);
+        code(black, Board.BLACK);
+        code(white, Board.WHITE);
+        if(moves != null)
             for(Point p: moves)
-                g.fillRect(p.getX()*50, p.getY()*50, 50, 50);
+                codes[Board.square(p)] |= MOVE;
+        if(active != null)
+            codes[Board.square(active.getLocation())] |= ACTIVE_PIECE;
+        for(int color = Board.WHITE; color <= Board.BLACK; color++)
+            if(ChessGame.inCheck(color) != null)
+                codes[Board.square(ChessGame.inCheck(color).getLocation())] |= CHECKED;
+
+        //redraw the changed squares (everything, the first time)
+        boolean all = scene == null;
+        if(all)
+            scene = BulletPanel.image(600, 400, Transparency.OPAQUE);
+        Graphics2D sg = scene.createGraphics();
+        sg.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        sg.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        sg.setFont(PIECE_FONT);
+        boolean edge = false;
+        for(int sq = 0; sq < 64; sq++){
+            int x = sq & 7, y = sq >>> 3;
+            if(all || changed(x, y) || changed(x - 1, y) || changed(x, y - 1) || changed(x - 1, y - 1)){
+                paintSquare(sg, x, y);
+                edge |= x == 7;
+            }
         }
-        
-        //draw times
-        g.setFont(new Font("Arial", Font.ITALIC, 15));
-        g.setColor(new Color(153,51,0));
+
+        //redraw the captured pieces at the side if they changed, or the last column did (its outlines reach into the side)
+        String removed = ids(removedBlack) + "/" + ids(removedWhite);
+        if(all || edge || !removed.equals(removedDrawn)){
+            sg.setClip(400, 0, 200, 400);
+            sg.setColor(BACKGROUND);
+            sg.fillRect(400, 0, 200, 400);
+            for(int color = Board.BLACK; color >= Board.WHITE; color--)
+                for(int y = 0; y < 8; y++)
+                    paintGlyph(sg, 7, y, color);
+            paintRemoved(sg, 350, -50, removedBlack, Board.BLACK);
+            paintRemoved(sg, 0, 50, removedWhite, Board.WHITE);
+            removedDrawn = removed;
+        }
+        sg.dispose();
+        System.arraycopy(codes, 0, drawn, 0, 64);
+        g.drawImage(scene, 0, 0, null);
+        paintClocks(g);
+    }
+
+    //draw times
+    private void paintClocks(Graphics g){
+        g.setFont(CLOCK_FONT);
+        g.setColor(GRID);
         g.drawString("White: " + formatTime(ChessGame.getWhiteTime()), 420, 207);
         g.drawString("Black: " + formatTime(ChessGame.getBlackTime()), 510, 207);
+    }
 
-        //set font for pieces
-        g.setFont(new Font("Arial", Font.BOLD, 50));
+    //sets the code of each square holding one of a list of pieces of a color
+    private void code(ArrayList<GamePiece> pieces, int color){
+        for(GamePiece p: pieces){
+            glyph(color, p);
+            codes[Board.square(p.getLocation())] = color*6 + p.getType() + 1;
+        }
+    }
 
-        //define color of white portion of pieces
-        Color whColor = new Color(255,200,150);
+    //whether a square (if on the board) differs from when it was last drawn
+    private boolean changed(int x, int y){
+        return Board.onBoard(x, y) && codes[Board.square(x, y)] != drawn[Board.square(x, y)];
+    }
 
-        //paint all pieces
-        paintPieces(g, black, whColor, Color.DARK_GRAY);
-        paintPieces(g, white, Color.DARK_GRAY, whColor);
-        paintRemoved(g, 350, -50, removedBlack, whColor, Color.DARK_GRAY);
-        paintRemoved(g, 0, 50, removedWhite, Color.DARK_GRAY, whColor);
+    //draws one square as it is now, clipped to it: the grid color (burnt sienna) or background, any move highlight as custom blue,
+    //the pieces reaching into it (from above and to the left, then its own, black's then white's, in the order all the pieces are drawn), and its own piece's letter (and the one above's) in any highlight colors
+    private void paintSquare(Graphics2D g, int x, int y){
+        int code = codes[Board.square(x, y)];
+        g.setClip(x*50, y*50, 50, 50);
+        g.setColor((x + y) % 2 == 1 ? GRID : BACKGROUND);
+        g.fillRect(x*50, y*50, 50, 50);
+        if((code & MOVE) != 0){
+            g.setColor(ACTIVE);
+            g.fillRect(x*50, y*50, 50, 50);
+        }
+        for(int color = Board.BLACK; color >= Board.WHITE; color--){
+            paintGlyph(g, x - 1, y - 1, color);
+            paintGlyph(g, x, y - 1, color);
+            paintGlyph(g, x - 1, y, color);
+            paintGlyph(g, x, y, color);
+        }
 
-        //highlight any active or checked pieces
-        highlight(g, activeColor, active);
-        highlight(g, Color.RED, ChessGame.inCheck(black, white));
-        highlight(g, Color.RED, ChessGame.inCheck(white, black));
+        //highlight any active or checked pieces (the tail of a letter above reaches in too)
+        paintHighlights(g, x, y - 1);
+        paintHighlights(g, x, y);
     }
+    private void paintHighlights(Graphics g, int x, int y){
+        if(!Board.onBoard(x, y))
+            return;
+        int code = codes[Board.square(x, y)];
+        if((code & ACTIVE_PIECE) != 0)
+            highlight(g, ACTIVE, active);
+        if((code & CHECKED) != 0)
+            highlight(g, Color.RED, ChessGame.inCheck(color(code)));
+    }
+
+    //draws the piece of a color on a square (if on the board and there is one) from its glyph
+    private void paintGlyph(Graphics g, int x, int y, int color){
+        if(!Board.onBoard(x, y))
+            return;
+        int code = codes[Board.square(x, y)] & 15;
+        if(code != 0 && color(code) == color)
+            g.drawImage(glyphs[color(code)][(code - 1) % 6], x*50 - 1, y*50 - 1, null);
+    }
+    private static int color(int code){ return ((code & 15) - 1)/6;}
+
+    //the letters of a list of pieces, to tell when it changes
+    private static String ids(ArrayList<GamePiece> pieces){
+        StringBuilder s = new StringBuilder();
+        for(GamePiece p: pieces)
+            s.append(p.getID());
+        return s.toString();
+    }
+
+    //repaints only the clocks (the rest of the board hasn't changed when only time has passed)
+    public void repaintClocks(){ repaint(CLOCKS.x, CLOCKS.y, CLOCKS.width, CLOCKS.height);}
 
-    //called on repaint(), method used primarily in showing the panel
+    //called on repaint(), method used primarily in showing the panel (the end of the game is found when a move is played, not here)
     public void paintComponent(Graphics gr) {
         super.paintComponent(gr);
 
     	paintAll(gr);
-
-        //write checkmate if the game has come to an end.
-        ChessGame.checkmate();
     }
 }
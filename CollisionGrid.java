@@ -0,0 +1,82 @@
+import java.util.Arrays;
+
+/*  Uniform grid over a bullet-stage arena, so a king is only tested against the foe pieces near it
+ *  rather than all of them. Each piece is bucketed by the cell holding its upper left-hand corner,
+ *  and a king's query covers the cells any overlapping piece could have its corner in: its own box
+ *  widened up and to the left by the largest piece size.
+ *
+ *  Every piece moves every tick, so BulletPanel refills the grid from the arena each tick. Cells are
+ *  linked lists threaded through int arrays, one slot per piece, so adding is a few stores and
+ *  nothing is allocated per tick. Pieces outside the bounds (before they wrap around) are kept in
+ *  the nearest edge cell.
+ */
+
+public class CollisionGrid {
+    //largest piece width or height (the queen), which bounds how far up and left an overlapping piece's corner can be
+    private static final int MAX_SIZE = 40;
+
+    //cell size, arena bounds and dimensions in cells
+    private final int cell, xmin, ymin, columns, rows;
+
+    //first slot in each cell, then per slot: the next slot in the same cell (-1 ends a cell), the piece's corner, and its type and index in the arena
+    private int[] head, link = new int[16], xs = new int[16], ys = new int[16], types = new int[16], indices = new int[16];
+    private int slots;
+
+    //makes a grid of square cells of a size over an arena
+    public CollisionGrid(int cellSize, int xmin, int xmax, int ymin, int ymax){
+        cell = cellSize;
+        this.xmin = xmin;
+        this.ymin = ymin;
+        columns = (xmax - xmin)/cell + 1;
+        rows = (ymax - ymin)/cell + 1;
+        head = new int[columns*rows];
+        Arrays.fill(head, -1);
+    }
+
+    //empties the grid
+    public void clear(){
+        Arrays.fill(head, -1);
+        slots = 0;
+    }
+
+    //adds a piece (by type and index in its arena) with its corner at a location
+    public void add(int type, int i, int x, int y){
+        if(slots == link.length){
+            link = Arrays.copyOf(link, slots*2);
+            xs = Arrays.copyOf(xs, slots*2);
+            ys = Arrays.copyOf(ys, slots*2);
+            types = Arrays.copyOf(types, slots*2);
+            indices = Arrays.copyOf(indices, slots*2);
+        }
+        int c = row(y)*columns + column(x), s = slots++;
+        xs[s] = x;
+        ys[s] = y;
+        types[s] = type;
+        indices[s] = i;
+        link[s] = head[c];
+        head[c] = s;
+    }
+
+    //returns the number of pieces of an arena overlapping the king, moving any collided pieces to random locations
+    //(each piece is tested once, where it was added, as the original pass over the whole list did)
+    public int collide(King k, BulletArena arena){
+        Point loc = k.getLocation();
+        int kx = loc.getX(), ky = loc.getY(), kw = k.getWidth(), kh = k.getHeight(), count = 0;
+        int left = column(kx - MAX_SIZE), right = column(kx + kw), top = row(ky - MAX_SIZE), bottom = row(ky + kh);
+        for(int r = top; r <= bottom; r++)
+            for(int c = left; c <= right; c++)
+                for(int s = head[r*columns + c]; s >= 0; s = link[s]){
+                    int px = xs[s], py = ys[s], type = types[s];
+                    //p has collided with the king if the boxes of the king and p's heights and radii with their respective upper left-hand corner coordinates intersect
+                    if(((px > kx && px - kx < kw) || (kx > px && kx - px < BulletArena.width(type))) && ((py > ky && py - ky < kh) || (ky > py && ky - py < BulletArena.height(type)))){
+                        arena.randomize(type, indices[s]);
+                        count++;
+                    }
+                }
+        return count;
+    }
+
+    //cell column and row of a coordinate, clamped to the grid
+    private int column(int x){ return Math.max(0, Math.min(columns - 1, (x - xmin)/cell));}
+    private int row(int y){ return Math.max(0, Math.min(rows - 1, (y - ymin)/cell));}
+}
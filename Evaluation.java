@@ -0,0 +1,81 @@
+/*  Static evaluation for the search: material plus piece-square tables (a bonus or penalty for each
+ *  piece depending on where it stands), in centipawns from the side to move's point of view.
+ *
+ *  The tables are written from white's side with black's back rank (y = 0) first, matching the
+ *  square numbering, and mirrored vertically for black.
+ */
+
+public class Evaluation {
+    //material values by piece type (the king is never captured, so it is worth nothing here)
+    public static final int[] VALUES = {100, 320, 330, 500, 900, 0};
+
+    //piece-square tables by piece type
+    private static final int[][] TABLES = {
+        {//pawn: advance, keep the center pawns off their home squares
+              0,   0,   0,   0,   0,   0,   0,   0,
+             50,  50,  50,  50,  50,  50,  50,  50,
+             10,  10,  20,  30,  30,  20,  10,  10,
+              5,   5,  10,  25,  25,  10,   5,   5,
+              0,   0,   0,  20,  20,   0,   0,   0,
+              5,  -5, -10,   0,   0, -10,  -5,   5,
+              5,  10,  10, -20, -20,  10,  10,   5,
+              0,   0,   0,   0,   0,   0,   0,   0},
+        {//knight: centralize
+            -50, -40, -30, -30, -30, -30, -40, -50,
+            -40, -20,   0,   0,   0,   0, -20, -40,
+            -30,   0,  10,  15,  15,  10,   0, -30,
+            -30,   5,  15,  20,  20,  15,   5, -30,
+            -30,   0,  15,  20,  20,  15,   0, -30,
+            -30,   5,  10,  15,  15,  10,   5, -30,
+            -40, -20,   0,   5,   5,   0, -20, -40,
+            -50, -40, -30, -30, -30, -30, -40, -50},
+        {//bishop: avoid corners and edges
+            -20, -10, -10, -10, -10, -10, -10, -20,
+            -10,   0,   0,   0,   0,   0,   0, -10,
+            -10,   0,   5,  10,  10,   5,   0, -10,
+            -10,   5,   5,  10,  10,   5,   5, -10,
+            -10,   0,  10,  10,  10,  10,   0, -10,
+            -10,  10,  10,  10,  10,  10,  10, -10,
+            -10,   5,   0,   0,   0,   0,   5, -10,
+            -20, -10, -10, -10, -10, -10, -10, -20},
+        {//rook: seventh rank, central files
+              0,   0,   0,   0,   0,   0,   0,   0,
+              5,  10,  10,  10,  10,  10,  10,   5,
+             -5,   0,   0,   0,   0,   0,   0,  -5,
+             -5,   0,   0,   0,   0,   0,   0,  -5,
+             -5,   0,   0,   0,   0,   0,   0,  -5,
+             -5,   0,   0,   0,   0,   0,   0,  -5,
+             -5,   0,   0,   0,   0,   0,   0,  -5,
+              0,   0,   0,   5,   5,   0,   0,   0},
+        {//queen: slightly central
+            -20, -10, -10,  -5,  -5, -10, -10, -20,
+            -10,   0,   0,   0,   0,   0,   0, -10,
+            -10,   0,   5,   5,   5,   5,   0, -10,
+             -5,   0,   5,   5,   5,   5,   0,  -5,
+              0,   0,   5,   5,   5,   5,   0,  -5,
+            -10,   5,   5,   5,   5,   5,   0, -10,
+            -10,   0,   5,   0,   0,   0,   0, -10,
+            -20, -10, -10,  -5,  -5, -10, -10, -20},
+        {//king: stay home behind the pawns
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -20, -30, -30, -40, -40, -30, -30, -20,
+            -10, -20, -20, -20, -20, -20, -20, -10,
+             20,  20,   0,   0,   0,   0,  20,  20,
+             20,  30,  10,   0,   0,  10,  30,  20}
+    };
+
+    //returns the evaluation of a position for the side to move
+    public static int evaluate(Board board){
+        int score = 0;
+        for(int type = 0; type < 6; type++){
+            for(long s = board.pieces(Board.WHITE, type); s != 0; s &= s - 1)
+                score += VALUES[type] + TABLES[type][Long.numberOfTrailingZeros(s)];
+            for(long s = board.pieces(Board.BLACK, type); s != 0; s &= s - 1)
+                score -= VALUES[type] + TABLES[type][Long.numberOfTrailingZeros(s) ^ 56];
+        }
+        return board.sideToMove() == Board.WHITE ? score : -score;
+    }
+}
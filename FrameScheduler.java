@@ -0,0 +1,93 @@
+import java.awt.*;
+import java.util.concurrent.locks.LockSupport;
+
+/*  Paces a render loop at a target frame rate by parking the thread until each frame's deadline,
+ *  rather than spinning on Thread.yield until it comes round (which kept a whole core busy for the
+ *  entire bullet stage, starving the music and everything else). Deadlines are kept on a fixed
+ *  grid from the start, so oversleeping one frame doesn't push back the ones after it; a loop that
+ *  falls more than a frame behind skips the missed deadlines instead of rushing to catch up.
+ *
+ *  With vsync on, the rate is the screen's refresh rate (when the screen reports one) and each
+ *  frame is flushed to the display before waiting, so frames are paced in step with the screen.
+ *
+ *  Keeps statistics of the time between frames: frames per second over the last second, and the
+ *  average, worst and late frames since the start.
+ */
+
+public class FrameScheduler {
+    //nanoseconds per frame, the deadline of the next one, and whether frames are flushed for vsync
+    private final long period;
+    private final boolean vsync;
+    private long next, lastFrame;
+
+    //statistics: frames and total nanoseconds between them, the longest, frames later than a period and a half, and the frames per second over the last second
+    private long frames, total, worst, late;
+    private long secondStart, secondFrames;
+    private double fps;
+
+    //makes a scheduler for a number of frames per second, aligned to the screen's refresh if vsync is on
+    public FrameScheduler(double rate, boolean vsync){
+        this.vsync = vsync;
+        int refresh = vsync ? refreshRate() : DisplayMode.REFRESH_RATE_UNKNOWN;
+        period = (long) (1000000000L/(refresh != DisplayMode.REFRESH_RATE_UNKNOWN ? refresh : rate));
+        next = lastFrame = secondStart = System.nanoTime();
+    }
+
+    //ends a frame: flushes it (with vsync), records its time, and parks until the next frame is due, returning the time then
+    public long frame(){
+        if(vsync)
+            Toolkit.getDefaultToolkit().sync();
+
+        //the next deadline on the grid, unless more than a frame has been missed
+        next += period;
+        long now = System.nanoTime();
+        if(now - next > period)
+            next = now;
+        now = parkUntil(next);
+
+        //frame time statistics
+        long time = now - lastFrame;
+        lastFrame = now;
+        frames++;
+        total += time;
+        worst = Math.max(worst, time);
+        if(time > period*3/2)
+            late++;
+        secondFrames++;
+        if(now - secondStart >= 1000000000L){
+            fps = secondFrames*1e9/(now - secondStart);
+            secondStart = now;
+            secondFrames = 0;
+        }
+        return now;
+    }
+
+    //parks the calling thread until a System.nanoTime deadline, returning the time when it wakes (at or after the deadline, unless interrupted)
+    public static long parkUntil(long deadline){
+        long now = System.nanoTime();
+        while(now < deadline && !Thread.currentThread().isInterrupted()){
+            LockSupport.parkNanos(deadline - now);
+            now = System.nanoTime();
+        }
+        return now;
+    }
+
+    //statistics so far
+    public double fps(){ return fps;}
+    public long frames(){ return frames;}
+    public double averageMillis(){ return frames == 0 ? 0 : total/1e6/frames;}
+    public double worstMillis(){ return worst/1e6;}
+    public long late(){ return late;}
+    public String toString(){
+        return String.format("%d frames at %.1f ms target: average %.2f ms, worst %.2f ms, %d late", frames, period/1e6, averageMillis(), worstMillis(), late);
+    }
+
+    //refresh rate of the default screen, if it is known
+    private static int refreshRate(){
+        try{
+            return GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDisplayMode().getRefreshRate();
+        }catch(HeadlessException e){
+            return DisplayMode.REFRESH_RATE_UNKNOWN;
+        }
+    }
+}
@@ -3,7 +3,7 @@ import java.util.ArrayList;
 public abstract class GamePiece {
     //location of piece and time of capture
     private Point p;
-    private int time, width, height;
+    private int time;
 
     //constructor, location accessor/mutator methods
     public GamePiece(Point initp){
@@ -13,116 +13,53 @@ public abstract class GamePiece {
     public Point getLocation(){ return p;}
     public void setLocation(Point newP){ p = newP;}
 
-    //per-piece methods for the potential moves (to be parsed later for potential checks), the letter-ID of the piece (displayed on piece), and the offset (for centering ID)
-    public abstract ArrayList<Point> getMoves(ArrayList<GamePiece> friendPieces, ArrayList<GamePiece> foePieces);
+    //per-piece methods for the type (index into Board's bitboards), the letter-ID of the piece (displayed on piece), and the offset (for centering ID)
+    public abstract int getType();
     public abstract String getID();
     public abstract int offSet();
 
-    //returns all possible rook-style moves
-    public ArrayList<Point> rookMoves(ArrayList<GamePiece> friendPieces, ArrayList<GamePiece> foePieces){
-        ArrayList<Point> moves = new ArrayList<>();
-
-        //add potential unobstructed moves within the bounds of the board in increasing x values, adding location of obstruction only if it's an enemy
-        Point loc = new Point(getLocation()).incX(1);
-        while(loc.getX() <= 7 && isEmpty(friendPieces, foePieces, loc)){
-            moves.add(new Point(loc));
-            loc.incX(1);
-        }
-        addIfFoe(moves, foePieces, loc);
-
-
-        //same with decreasing x
-        loc = new Point(getLocation()).incX(-1);
-        while(loc.getX() >= 0 && isEmpty(friendPieces, foePieces, loc)){
-            moves.add(new Point(loc));
-            loc.incX(-1);
-        }
-        addIfFoe(moves, foePieces, loc);
-
-
-        //same with increasing y
-        loc = new Point(getLocation()).incY(1);
-        while(loc.getY() <= 7 && isEmpty(friendPieces, foePieces, loc)){
-            moves.add(new Point(loc));
-            loc.incY(1);
-        }
-        addIfFoe(moves, foePieces, loc);
-
-
-        //same with decreasing y
-        loc = new Point(getLocation()).incY(-1);
-        while(loc.getY() >= 0 && isEmpty(friendPieces, foePieces, loc)){
-            moves.add(new Point(loc));
-            loc.incY(-1);
-        }
-        addIfFoe(moves, foePieces, loc);
-
-
-        return moves;
+    //returns the potential moves (to be parsed later for potential checks) from this piece's location as a bitboard
+    public long getMoves(Board board, int color){ return board.moves(getType(), Board.square(getLocation()), color);}
+
+    //returns the potential moves as points, building a board from lists of friendly and foe pieces (for callers that only have the lists)
+    public ArrayList<Point> getMoves(ArrayList<GamePiece> friendPieces, ArrayList<GamePiece> foePieces){
+        int color = colorOf(friendPieces, foePieces);
+        Board board;
+        if(color == Board.WHITE)
+            board = new Board(friendPieces, foePieces);
+        else
+            board = new Board(foePieces, friendPieces);
+        return Board.toPoints(getMoves(board, color));
     }
 
-    //returns all possible bishop-style moves
-    public ArrayList<Point> bishopMoves(ArrayList<GamePiece> friendPieces, ArrayList<GamePiece> foePieces){
-        ArrayList<Point> moves = new ArrayList<>();
-
-        //same as rook but with increasing x and y
-        Point loc = new Point(getLocation()).incX(1).incY(1);
-        while(loc.getX() <= 7 && loc.getY() <= 7 && isEmpty(friendPieces, foePieces, loc)){
-            moves.add(new Point(loc));
-            loc.incX(1).incY(1);
-        }
-        addIfFoe(moves, foePieces, loc);
-
-
-        //same with dec x, y
-        loc = new Point(getLocation()).incX(-1).incY(-1);
-        while(loc.getX() >= 0 && loc.getY() >= 0 && isEmpty(friendPieces, foePieces, loc)){
-            moves.add(new Point(loc));
-            loc.incX(-1).incY(-1);
-        }
-        addIfFoe(moves, foePieces, loc);
-
-
-        //same with inc x, dec y
-        loc = new Point(getLocation()).incX(1).incY(-1);
-        while(loc.getX() <= 7 && loc.getY() >= 0 && isEmpty(friendPieces, foePieces, loc)){
-            moves.add(new Point(loc));
-            loc.incX(1).incY(-1);
-        }
-        addIfFoe(moves, foePieces, loc);
-
-
-        //same with dec x, inc y
-        loc = new Point(getLocation()).incX(-1).incY(1);
-        while(loc.getX() >= 0 && loc.getY() <= 7 && isEmpty(friendPieces, foePieces, loc)){
-            moves.add(new Point(loc));
-            loc.incX(-1).incY(1);
-        }
-        addIfFoe(moves, foePieces, loc);
-
-        return moves;
-    }
-    
-    //adds a move if the move is legal
-    public void addMove(ArrayList<Point> moves, Point loc, ArrayList<GamePiece> friendPieces){
-        //if the move is on to a friendly piece, stop checking
+    //finds the color of the friendly list by its pawns (without pawns, the color does not change any moves)
+    private static int colorOf(ArrayList<GamePiece> friendPieces, ArrayList<GamePiece> foePieces){
         for(GamePiece p: friendPieces)
-            if (p.getLocation().equals(loc))
-                return;
-
-        //if the move is within the grid, add the move
-        if(loc.getX() >= 0 && loc.getY() >= 0 && loc.getX() <= 7 && loc.getY() <= 7)
-            moves.add(loc);
-    }
-    
-    //adds a move if there is a foe on the spot
-    public void addIfFoe(ArrayList<Point> moves, ArrayList<GamePiece> foePieces, Point loc){
-        if(ChessGame.findPiece(foePieces, loc) != null)
-            moves.add(new Point(loc));
+            if(p instanceof Pawn)
+                return ((Pawn) p).isWhite() ? Board.WHITE : Board.BLACK;
+        for(GamePiece p: foePieces)
+            if(p instanceof Pawn)
+                return ((Pawn) p).isWhite() ? Board.BLACK : Board.WHITE;
+        return Board.WHITE;
     }
 
-    //finds if a point is completely empty of pieces
-    public boolean isEmpty(ArrayList<GamePiece> pc1, ArrayList<GamePiece> pc2, Point loc){return ChessGame.findPiece(pc1, loc) == null && ChessGame.findPiece(pc2, loc) == null;}
+    //returns all possible rook-style moves from a square (unobstructed squares on each ray, plus the obstruction only if it's an enemy)
+    public static long rookMoves(Board board, int sq, int color){ return Magic.rookAttacks(sq, board.occupancy()) & ~board.occupancy(color);}
+
+    //returns all possible bishop-style moves from a square
+    public static long bishopMoves(Board board, int sq, int color){ return Magic.bishopAttacks(sq, board.occupancy()) & ~board.occupancy(color);}
+
+    //builds a table of the squares reachable from every square by the given (x, y) steps (for knights and kings)
+    protected static long[] stepTable(int[][] steps){
+        long[] table = new long[64];
+        for(int sq = 0; sq < 64; sq++)
+            for(int[] step: steps){
+                int x = (sq & 7) + step[0], y = (sq >>> 3) + step[1];
+                if(Board.onBoard(x, y))
+                    table[sq] |= 1L << Board.square(x, y);
+            }
+        return table;
+    }
 
     //methods for dealing with time at which pieces are captured
     public GamePiece setTime(int seconds){
@@ -130,12 +67,4 @@ public abstract class GamePiece {
         return this;
     }
     public int getTime(){return time;}
-
-    //method for determining the bullet-stage rules for movement and beginning position
-    public void randomize(int xmin, int xmax, int ymin, int ymax){p = new Point((int) (Math.random()*(xmax-xmin)+xmin), (int) (Math.random()*(ymax-ymin)+ymin));}
-    public abstract void move();
-
-    //methods for setting and determining relative size of piece based on type
-    public abstract int getWidth();
-    public abstract int getHeight();
 }
@@ -0,0 +1,53 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/*  A line of text for the bullet stage's HUD, rasterized to an image only when what it says
+ *  changes, and otherwise just copied onto each frame. What the text says is tracked by a key
+ *  the caller makes from the values shown (the numbers in it), so an unchanged line costs no
+ *  string building or text layout at all.
+ */
+
+public class HudText {
+    private final Font font;
+    private final Color color;
+
+    //a scratch graphics to measure text with, with the same hints the text is drawn with
+    private static final Graphics2D measure = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB).createGraphics();
+    static {
+        measure.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+    }
+
+    //key of the text shown (none yet), and its image, ascent and width
+    private long key = Long.MIN_VALUE;
+    private BufferedImage image;
+    private int ascent, width;
+
+    public HudText(Font font, Color color){
+        this.font = font;
+        this.color = color;
+    }
+
+    //whether the text shown is for a key
+    public boolean shows(long k){ return image != null && k == key;}
+
+    //sets the text for a key, rasterizing it (anti-aliased)
+    public void set(long k, String text){
+        key = k;
+        FontMetrics metrics = measure.getFontMetrics(font);
+        ascent = metrics.getAscent();
+        width = metrics.stringWidth(text);
+        image = BulletPanel.image(Math.max(1, width + 2), metrics.getHeight(), Transparency.TRANSLUCENT);
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.setFont(font);
+        g.setColor(color);
+        g.drawString(text, 0, ascent);
+        g.dispose();
+    }
+
+    //draws the text with its baseline at a point, as drawString would, returning where the text ends
+    public int draw(Graphics g, int x, int y){
+        g.drawImage(image, x, y - ascent, null);
+        return x + width;
+    }
+}
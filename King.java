@@ -1,56 +1,37 @@
-import java.util.ArrayList;
-
 public class King extends GamePiece{
     private int left, right, up, down;
 
-    public ArrayList<Point> getMoves(ArrayList<GamePiece> friendPieces, ArrayList<GamePiece> foePieces){
-        ArrayList<Point> moves = new ArrayList<>();
+    //all adjacent squares from every square, computed once
+    private static final long[] STEPS = stepTable(new int[][]{{1,0},{1,-1},{1,1},{-1,0},{-1,-1},{-1,1},{0,-1},{0,1}});
 
+    public static long moves(Board board, int sq, int color){
         //add all potential adjacent moves
-        addMove(moves, new Point(getLocation()).incX(1), friendPieces);
-        addMove(moves, new Point(getLocation()).incX(1).incY(-1), friendPieces);
-        addMove(moves, new Point(getLocation()).incX(1).incY(1), friendPieces);
-        addMove(moves, new Point(getLocation()).incX(-1), friendPieces);
-        addMove(moves, new Point(getLocation()).incX(-1).incY(-1), friendPieces);
-        addMove(moves, new Point(getLocation()).incX(-1).incY(1), friendPieces);
-        addMove(moves, new Point(getLocation()).incY(-1), friendPieces);
-        addMove(moves, new Point(getLocation()).incY(1), friendPieces);
-
-        //get temporary arraylist without king for simultaneous comparison w/norm
-        ArrayList<GamePiece> tempFriends = new ArrayList<>(friendPieces); 
-        for(int i=0; i<tempFriends.size(); i++)
-            if(tempFriends.get(i).getID().equals("K"))
-                tempFriends.remove(i); 
+        long moves = adjacent(sq) & ~board.occupancy(color);
 
         //go through castling logic if the king is in its original location
-        if(getLocation().getX()==4 && (getLocation().getY()==0 || getLocation().getY()==7)){
-            GamePiece temp;
-            Point orig = new Point(getLocation()), tempPoint;
-            
-            //incrementally move the king right, stopping when obstructed or in check
-            getLocation().incX(1);
-            while(getLocation().getX()<8 && isEmpty(tempFriends, foePieces, getLocation()) && ChessGame.inCheck(friendPieces, foePieces)==null) 
-                getLocation().incX(1);
-            
-            //if the king stopped at the rook at the right side, add kingside castling
-            temp = ChessGame.findPiece(tempFriends, getLocation());
-            if(getLocation().getX()==7 && temp != null && temp.getID().equals("R"))
-                moves.add(new Point(orig).incX(2));
-            
-            //same queenside (left)
-            setLocation(new Point(orig).incX(-1));    
-            while(getLocation().getX()>0 && isEmpty(tempFriends, foePieces, getLocation()) && ChessGame.inCheck(friendPieces, foePieces)==null) 
-                getLocation().incX(-1);
+        if((sq & 7) == 4 && (sq >>> 3 == 0 || sq >>> 3 == 7)){
+            if(castles(board, sq, color, 1))
+                moves |= 1L << (sq + 2);
+            if(castles(board, sq, color, -1))
+                moves |= 1L << (sq - 2);
+        }
+
+        return moves;
+    }
 
-            temp = ChessGame.findPiece(tempFriends, getLocation());
-            if(getLocation().getX()==0 && temp != null && temp.getID().equals("R"))
-                moves.add(new Point(orig).incX(-2));
+    //squares adjacent to a square (also the squares a foe king could attack it from)
+    public static long adjacent(int sq){ return STEPS[sq];}
 
-            //set location back to beginning location
-            setLocation(orig);
-        } 
+    //castle if every square between the king and the corner is empty and not attacked, and a friendly rook is in the corner
+    //(attacks are checked as if the king had already moved, so its own square doesn't block them)
+    private static boolean castles(Board board, int sq, int color, int dir){
+        int corner = dir > 0 ? sq + 3 : sq - 4;
+        long occupancy = board.occupancy() & ~(1L << sq);
+        for(int loc = sq + dir; loc != corner; loc += dir)
+            if(!board.isEmpty(loc) || board.isAttacked(loc, 1 - color, occupancy))
+                return false;
 
-        return moves;
+        return board.typeAt(corner) == Board.ROOK && board.colorAt(corner) == color;
     }
     //constructor and ID definition
     public King(Point p){
@@ -58,6 +39,7 @@ public class King extends GamePiece{
         left = right = up = down = 0;
     }
     //various methods for class identity, as well as methods to set increment (velocity) horizontally and vertically
+    public int getType(){ return Board.KING;}
     public String getID(){ return "K";}
     public int offSet(){return 7;}
     public void move(){getLocation().incX(right-left).incY(down-up);}
@@ -65,6 +47,15 @@ public class King extends GamePiece{
     public void setRight(int x){right = x;}
     public void setUp(int x){up = x;}
     public void setDown(int x){down = x;}
+
+    //key bits for the directions held, and a method to set all four increments from them at once (the bullet stage's input each tick)
+    public static final int UP = 1, LEFT = 2, DOWN = 4, RIGHT = 8;
+    public void setKeys(int keys){
+        up = keys & UP;
+        left = (keys & LEFT) >> 1;
+        down = (keys & DOWN) >> 2;
+        right = (keys & RIGHT) >> 3;
+    }
     public int getWidth(){return 10;}
     public int getHeight(){return 10;}
 }
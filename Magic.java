@@ -0,0 +1,225 @@
+/*  Magic-bitboard attack tables for the sliding pieces (rooks, bishops and queens).
+ *
+ *  For every square, the blockers that matter (the ray squares short of the board edge) are
+ *  multiplied by a "magic" number so that the top bits of the product index a table holding the
+ *  attacks for that arrangement of blockers. The magics below came from a fixed-seed search, which
+ *  runs again for any square whose magic collides, and the tables are filled once when the class
+ *  is loaded; BUILD_NANOS records how long that took.
+ *  Run this class (java Magic [depth]) to print the build time and check the tables against the
+ *  ray walks they replace.
+ */
+
+public class Magic {
+    //directions (x, y) of rook and bishop rays
+    private static final int[][] ROOK_DIRECTIONS = {{1,0},{-1,0},{0,1},{0,-1}};
+    private static final int[][] BISHOP_DIRECTIONS = {{1,1},{-1,-1},{1,-1},{-1,1}};
+
+    //per-square relevant blocker masks, magic multipliers, shifts and offsets into the shared attack tables
+    private static final long[] ROOK_MASKS = new long[64], BISHOP_MASKS = new long[64];
+    private static final long[] ROOK_MAGICS = {
+        0x0980008011400020L, 0x8340004410002000L, 0x0880200090008268L, 0x0080080080100004L, 
+        0x8100110004020800L, 0x0300010004000822L, 0x08801A0029000080L, 0x8100050001204882L, 
+        0x0844800081400320L, 0x0804402010004000L, 0x0108802003100480L, 0x0004808008001000L, 
+        0x0003001801001014L, 0x0002000200041008L, 0x0004008108042210L, 0x0105000100009042L, 
+        0x0400808000400021L, 0xC100404010002000L, 0x0060008010002088L, 0x0400808008001000L, 
+        0x4440808008000400L, 0x1002008004000280L, 0x40024400300D1248L, 0x0010020000408104L, 
+        0x0101008200204200L, 0x8020002040005000L, 0x4100100080802000L, 0x4008006A80100280L, 
+        0x1020080080040080L, 0x0004010040020040L, 0x0018A12400080290L, 0x6140004200008104L, 
+        0x4000400020800090L, 0x2020002080804000L, 0x0000408202002010L, 0x0080100501000820L, 
+        0x0000800400800800L, 0x000A200408014010L, 0x0100800200800100L, 0xA00800570200008CL, 
+        0x008000406000C010L, 0x1040100028002000L, 0x0048200100110040L, 0x0068490210030020L, 
+        0x1009080005010010L, 0x2142000804010100L, 0x1001080110840002L, 0x1801004400820001L, 
+        0x010440208D020200L, 0x0000400020008080L, 0x0200200080100280L, 0x0000100020090100L, 
+        0x0204008008020480L, 0x8104010040020040L, 0x78000201B0080400L, 0x0040800051002880L, 
+        0x0050108001002041L, 0x208A801100614003L, 0x0006002042089082L, 0x0011090004201001L, 
+        0x1002001004200802L, 0x0005000208040001L, 0x0002002701AC0822L, 0x000010250184004AL
+    };
+    private static final long[] BISHOP_MAGICS = {
+        0xC0A0012206040EA0L, 0x8010228200420001L, 0x0110008220400400L, 0x02445C0080106000L, 
+        0x0044042004008100L, 0x0880900420408C05L, 0x0201080110080002L, 0x0000108094202000L, 
+        0x0000042002040108L, 0x0000623024110042L, 0x0086100094811002L, 0x0000044502002080L, 
+        0x0100460211400040L, 0x0008109004200004L, 0x0202320084844000L, 0x8040042421041009L, 
+        0x201010C05102008CL, 0x1020888208024080L, 0x0108000C80290200L, 0x8048000420425203L, 
+        0x0005000090402000L, 0x2080400201104100L, 0x8820420111101000L, 0x4AC0302208821802L, 
+        0x000440001002A840L, 0x2002200010041080L, 0x1012080201004400L, 0x8440040002410120L, 
+        0x1090820084010400L, 0x2084852012021000L, 0x12040062C1011003L, 0x02008205E1090080L, 
+        0x088C102808042080L, 0x0802102200904280L, 0x8020209002080020L, 0x2200080800060A00L, 
+        0x20C0004010010100L, 0x0802004100821003L, 0x0008024400008080L, 0x0000840102008090L, 
+        0x0030A40420244007L, 0x0A19084210011282L, 0x0004082090019806L, 0x6108004208020080L, 
+        0x0081200410110100L, 0x1040810701010208L, 0x0282047832012080L, 0x0010020099000020L, 
+        0x000E010422400840L, 0x10204208B0089090L, 0x081004440C048000L, 0x88C0180084040001L, 
+        0x3100020803040080L, 0x890070A041210C00L, 0x0020200101010A09L, 0x0004100240410400L, 
+        0x0006004402080200L, 0x0801062484042000L, 0x00010002D7441004L, 0x0810080000208800L, 
+        0x0000020808030411L, 0x1450001020014440L, 0x004060081081A288L, 0x0044011404108A00L
+    };
+    private static final int[] ROOK_SHIFTS = new int[64], BISHOP_SHIFTS = new int[64];
+    private static final int[] ROOK_OFFSETS = new int[64], BISHOP_OFFSETS = new int[64];
+    private static final long[] ROOK_TABLE, BISHOP_TABLE;
+
+    //time taken to fill the tables, in nanoseconds
+    public static final long BUILD_NANOS;
+
+    //state of the xorshift generator used to search for magics (fixed seed so every run builds the same tables)
+    private static long seed = 0x2545F4914F6CDD1DL;
+
+    static {
+        long start = System.nanoTime();
+        ROOK_TABLE = build(ROOK_DIRECTIONS, ROOK_MASKS, ROOK_MAGICS, ROOK_SHIFTS, ROOK_OFFSETS);
+        BISHOP_TABLE = build(BISHOP_DIRECTIONS, BISHOP_MASKS, BISHOP_MAGICS, BISHOP_SHIFTS, BISHOP_OFFSETS);
+        BUILD_NANOS = System.nanoTime() - start;
+    }
+
+    //returns the squares attacked by a rook or bishop on a square given the occupancy of the board (the first blocker on each ray included)
+    public static long rookAttacks(int sq, long occupancy){
+        return ROOK_TABLE[ROOK_OFFSETS[sq] + (int) (((occupancy & ROOK_MASKS[sq]) * ROOK_MAGICS[sq]) >>> ROOK_SHIFTS[sq])];
+    }
+    public static long bishopAttacks(int sq, long occupancy){
+        return BISHOP_TABLE[BISHOP_OFFSETS[sq] + (int) (((occupancy & BISHOP_MASKS[sq]) * BISHOP_MAGICS[sq]) >>> BISHOP_SHIFTS[sq])];
+    }
+
+    //walks the rays of a rook or bishop square by square (used to fill the tables and to check them)
+    public static long rookRays(int sq, long occupancy){ return rays(sq, occupancy, ROOK_DIRECTIONS);}
+    public static long bishopRays(int sq, long occupancy){ return rays(sq, occupancy, BISHOP_DIRECTIONS);}
+    private static long rays(int sq, long occupancy, int[][] directions){
+        long attacks = 0;
+        for(int[] d: directions){
+            int x = (sq & 7) + d[0], y = (sq >>> 3) + d[1];
+            while(Board.onBoard(x, y)){
+                int to = Board.square(x, y);
+                attacks |= 1L << to;
+                if((occupancy >>> to & 1) != 0)
+                    break;
+                x += d[0];
+                y += d[1];
+            }
+        }
+        return attacks;
+    }
+
+    //fills one table for every square's magic (searching for a new magic wherever one collides), returning the table
+    private static long[] build(int[][] directions, long[] masks, long[] magics, int[] shifts, int[] offsets){
+        //relevant blocker masks (rays without their last square, since a blocker on the edge changes nothing) and table offsets
+        int size = 0;
+        for(int sq = 0; sq < 64; sq++){
+            for(int[] d: directions){
+                int x = (sq & 7) + d[0], y = (sq >>> 3) + d[1];
+                while(Board.onBoard(x + d[0], y + d[1])){
+                    masks[sq] |= 1L << Board.square(x, y);
+                    x += d[0];
+                    y += d[1];
+                }
+            }
+            shifts[sq] = 64 - Long.bitCount(masks[sq]);
+            offsets[sq] = size;
+            size += 1 << Long.bitCount(masks[sq]);
+        }
+
+        long[] table = new long[size];
+        long[] occupancies = new long[4096], attacks = new long[4096];
+        int[] epoch = new int[4096];
+        int tries = 0;
+        for(int sq = 0; sq < 64; sq++){
+            //every subset of the mask (carry-rippler enumeration) and the attacks for it
+            int n = 0;
+            long subset = 0;
+            do {
+                occupancies[n] = subset;
+                attacks[n++] = rays(sq, subset, directions);
+                subset = (subset - masks[sq]) & masks[sq];
+            } while(subset != 0);
+
+            //try the stored magic, then sparse random numbers, until one maps every subset without destructive collisions
+            long magic = magics[sq];
+            while(!fill(table, offsets[sq], shifts[sq], magic, occupancies, attacks, n, epoch, ++tries))
+                do {
+                    magic = random() & random() & random();
+                } while(Long.bitCount((masks[sq] * magic) & 0xFF00000000000000L) < 6);
+            magics[sq] = magic;
+        }
+        return table;
+    }
+
+    //writes the attacks of each subset at its magic index, returning false if two subsets with different attacks share an index
+    private static boolean fill(long[] table, int offset, int shift, long magic, long[] occupancies, long[] attacks, int n, int[] epoch, int tries){
+        for(int i = 0; i < n; i++){
+            int index = (int) ((occupancies[i] * magic) >>> shift);
+            if(epoch[index] != tries){
+                epoch[index] = tries;
+                table[offset + index] = attacks[i];
+            }
+            else if(table[offset + index] != attacks[i])
+                return false;
+        }
+        return true;
+    }
+
+    //xorshift64 step
+    private static long random(){
+        seed ^= seed << 13;
+        seed ^= seed >>> 7;
+        seed ^= seed << 17;
+        return seed;
+    }
+
+    //prints the table build time, checks every blocker arrangement on every square against the ray walks, and counts
+    //leaf nodes from the starting position, checking each slider on every position against the ray walks as well
+    public static void main(String[] args){
+        System.out.printf("Tables built in %.2f ms (%d rook and %d bishop entries)%n", BUILD_NANOS/1e6, ROOK_TABLE.length, BISHOP_TABLE.length);
+
+        long checked = 0;
+        for(int sq = 0; sq < 64; sq++){
+            long subset = 0;
+            do {
+                if(rookAttacks(sq, subset) != rookRays(sq, subset))
+                    throw new IllegalStateException("rook table mismatch on square " + sq);
+                checked++;
+                subset = (subset - ROOK_MASKS[sq]) & ROOK_MASKS[sq];
+            } while(subset != 0);
+            do {
+                if(bishopAttacks(sq, subset) != bishopRays(sq, subset))
+                    throw new IllegalStateException("bishop table mismatch on square " + sq);
+                checked++;
+                subset = (subset - BISHOP_MASKS[sq]) & BISHOP_MASKS[sq];
+            } while(subset != 0);
+        }
+        System.out.println("All " + checked + " blocker arrangements match the ray walks");
+
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int[][] buffers = new int[depth][Move.MAX_MOVES];
+        Board board = Board.standard();
+        for(int d = 1; d <= depth; d++){
+            long start = System.nanoTime();
+            long nodes = verify(board, Board.WHITE, d, buffers);
+            System.out.printf("Depth %d: %d nodes (%.0f ms), slider moves identical at every node%n", d, nodes, (System.nanoTime() - start)/1e6);
+        }
+    }
+
+    //counts leaf nodes to a depth, comparing the table lookups with the ray walks for every slider on every position visited
+    private static long verify(Board board, int color, int depth, int[][] buffers){
+        long occupancy = board.occupancy();
+        for(int c = 0; c < 2; c++){
+            for(long s = board.pieces(c, Board.ROOK) | board.pieces(c, Board.QUEEN); s != 0; s &= s - 1){
+                int sq = Long.numberOfTrailingZeros(s);
+                if(rookAttacks(sq, occupancy) != rookRays(sq, occupancy))
+                    throw new IllegalStateException("rook moves differ on square " + sq);
+            }
+            for(long s = board.pieces(c, Board.BISHOP) | board.pieces(c, Board.QUEEN); s != 0; s &= s - 1){
+                int sq = Long.numberOfTrailingZeros(s);
+                if(bishopAttacks(sq, occupancy) != bishopRays(sq, occupancy))
+                    throw new IllegalStateException("bishop moves differ on square " + sq);
+            }
+        }
+        if(depth == 0)
+            return 1;
+
+        long nodes = 0;
+        int[] moves = buffers[depth - 1];
+        int count = board.generateLegal(color, moves, 0);
+        for(int i = 0; i < count; i++){
+            board.makeMove(moves[i]);
+            nodes += verify(board, 1 - color, depth - 1, buffers);
+            board.unmakeMove();
+        }
+        return nodes;
+    }
+}
@@ -0,0 +1,31 @@
+/*  Moves packed into ints, so move lists can live in preallocated int[] buffers instead of
+ *  ArrayLists of Points. Bits 0-5 hold the square moved from, 6-11 the square moved to, 12-14 the
+ *  type of the moving piece, 15-17 the type of any captured piece, and the bits above those the
+ *  capture, castling and promotion flags.
+ */
+
+public class Move {
+    //the largest number of moves a position can have (comfortably above the real maximum of 218)
+    public static final int MAX_MOVES = 256;
+
+    //flags
+    public static final int CAPTURE = 1 << 18, CASTLE = 1 << 19, PROMOTION = 1 << 20;
+
+    //a move of one type of piece from one square to another, capturing a type (ignored unless flagged as a capture)
+    public static int of(int from, int to, int type, int captured, int flags){
+        return from | to << 6 | type << 12 | (captured & 7) << 15 | flags;
+    }
+
+    //accessor methods for the packed fields
+    public static int from(int move){ return move & 63;}
+    public static int to(int move){ return move >>> 6 & 63;}
+    public static int type(int move){ return move >>> 12 & 7;}
+    public static int captured(int move){ return move >>> 15 & 7;}
+    public static boolean isCapture(int move){ return (move & CAPTURE) != 0;}
+    public static boolean isCastle(int move){ return (move & CASTLE) != 0;}
+    public static boolean isPromotion(int move){ return (move & PROMOTION) != 0;}
+
+    //writes a move as its squares in algebraic notation (file a-h from the left, rank 1 at white's side), e.g. "e2e4"
+    public static String toString(int move){ return square(from(move)) + square(to(move));}
+    public static String square(int sq){ return "" + (char) ('a' + (sq & 7)) + (char) ('8' - (sq >>> 3));}
+}
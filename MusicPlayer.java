@@ -0,0 +1,140 @@
+import javax.sound.sampled.*;
+import java.io.File;
+import java.io.IOException;
+
+/*  Plays the music by streaming it from its files through a SourceDataLine on a thread of its own,
+ *  rather than loading each track whole into a Clip (several megabytes apiece, all read before a
+ *  note plays). Only a tenth of a second of sound is ever buffered: the thread reads a track a
+ *  chunk at a time and writes it to the line, which blocks until the line has room.
+ *
+ *  A track can be followed by a looped one. When the first ends, the loop's file is opened and
+ *  written to the same line straight after it (converted to the line's format if it differs), so
+ *  the handoff has no gap; when the loop ends its file is opened again from the start.
+ *
+ *  Pausing stops the line where it is and resuming carries on from there, as Clip.stop and
+ *  Clip.loop did.
+ */
+
+public class MusicPlayer implements Runnable {
+    //seconds of sound the line buffers, and the length of the chunks written to it
+    private static final double BUFFER = 0.1, CHUNK = 0.025;
+
+    //the track being streamed and the file looped after it, a track waiting to replace them (and its loop), and whether paused
+    private AudioInputStream stream, pending;
+    private File looping, pendingLoop;
+    private boolean paused;
+
+    //the line played through (opened for the first track's format) and the chunk read into
+    private SourceDataLine line;
+    private byte[] chunk;
+
+    //starts the player's thread, with nothing to play yet
+    public MusicPlayer(){
+        Thread thread = new Thread(this, "music");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    //loops a file from its start, in place of whatever is playing
+    public void loop(File file) throws IOException, UnsupportedAudioFileException {
+        play(file, file);
+    }
+
+    //plays a file from its start, in place of whatever is playing, and loops another after it
+    //(only the file's header is read here, so a missing or unreadable file is found at once)
+    public synchronized void play(File first, File loop) throws IOException, UnsupportedAudioFileException {
+        AudioInputStream next = AudioSystem.getAudioInputStream(first);
+        if(pending != null)
+            pending.close();
+        pending = next;
+        pendingLoop = loop;
+
+        //drop what's buffered of the old track (which also frees a write blocked on a paused line)
+        if(line != null)
+            line.flush();
+        notifyAll();
+    }
+
+    //pauses where the music is, and resumes from there
+    public synchronized void pause(){
+        paused = true;
+        if(line != null)
+            line.stop();
+    }
+    public synchronized void resume(){
+        paused = false;
+        if(line != null)
+            line.start();
+        notifyAll();
+    }
+
+    //streams the tracks to the line
+    public void run(){
+        while(true){
+            try{
+                //wait for something to play (switching tracks whenever one is waiting, even while paused)
+                synchronized(this){
+                    while(pending == null && (paused || stream == null))
+                        wait();
+                    if(pending != null){
+                        if(stream != null)
+                            stream.close();
+                        stream = pending;
+                        looping = pendingLoop;
+                        pending = null;
+                        if(line != null)
+                            line.flush();
+                    }
+                }
+                if(line == null || !line.getFormat().matches(stream.getFormat()))
+                    stream = fit(stream);
+
+                //write the next chunk, or at the end of the track go on to the loop
+                int n = stream.read(chunk, 0, chunk.length);
+                if(n > 0)
+                    line.write(chunk, 0, n);
+                else if(n < 0){
+                    stream.close();
+                    stream = fit(AudioSystem.getAudioInputStream(looping));
+                }
+            }catch(InterruptedException e){
+                return;
+            }catch(Exception e){
+                //give up on this track, and wait for another
+                e.printStackTrace();
+                synchronized(this){
+                    stream = null;
+                }
+            }
+        }
+    }
+
+    //a track converted to the line's format if it can be, or else the track with the line opened again for its format
+    private AudioInputStream fit(AudioInputStream track) throws LineUnavailableException {
+        AudioFormat format = track.getFormat();
+        if(line != null){
+            if(line.getFormat().matches(format))
+                return track;
+            if(AudioSystem.isConversionSupported(line.getFormat(), format))
+                return AudioSystem.getAudioInputStream(line.getFormat(), track);
+
+            //play out the old track before changing lines
+            line.drain();
+            line.close();
+        }
+        SourceDataLine l = AudioSystem.getSourceDataLine(format);
+        l.open(format, frames(format, BUFFER)*format.getFrameSize());
+        chunk = new byte[frames(format, CHUNK)*format.getFrameSize()];
+        synchronized(this){
+            line = l;
+            if(!paused)
+                line.start();
+        }
+        return track;
+    }
+
+    //whole frames in a number of seconds of a format
+    private static int frames(AudioFormat format, double seconds){
+        return Math.max(1, (int) (format.getFrameRate()*seconds));
+    }
+}
@@ -0,0 +1,95 @@
+/*  Lazy SMP: runs several Searches on the same root position at once, one per thread, sharing a
+ *  transposition table. The threads don't divide the work explicitly; each one's results land in
+ *  the shared table and cut off parts of the others' trees. Every other helper starts one ply
+ *  deeper so the threads don't all walk the same depth in step.
+ *
+ *  The calling thread runs the main search and decides when to stop (its time budget or a mate);
+ *  the helpers are stopped then and joined. The move played is from the deepest finished iteration.
+ */
+
+public class ParallelSearch {
+    //shared table, one search per thread (the first run by the caller), and the time taken by the last search
+    private final TranspositionTable table;
+    private final Search[] workers;
+    private long nanos;
+    private int best;
+
+    //makes a search over a number of threads (at least one) sharing a transposition table
+    public ParallelSearch(TranspositionTable tt, int threads){
+        table = tt;
+        workers = new Search[Math.max(1, threads)];
+        for(int i = 0; i < workers.length; i++)
+            workers[i] = new Search(tt);
+    }
+
+    //searches a position on every thread for up to a number of milliseconds, returning the best move found (0 if there are none)
+    public int search(Board position, long millis){
+        long start = System.nanoTime();
+        table.newSearch();
+
+        //give every worker its time before any thread starts (a stop() already made still holds: it is never cleared)
+        for(Search w: workers)
+            w.reset();
+
+        Thread[] helpers = new Thread[workers.length - 1];
+        for(int i = 0; i < helpers.length; i++){
+            helpers[i] = new Thread(new Helper(workers[i + 1], position, millis, (i + 1) % 2), "search-" + (i + 1));
+            helpers[i].setDaemon(true);
+            helpers[i].start();
+        }
+
+        workers[0].think(position, millis, 0, false);
+        for(Search w: workers)
+            w.halt();
+        for(Thread t: helpers)
+            try{ t.join();}catch(InterruptedException e){ Thread.currentThread().interrupt();}
+
+        //take the move of the deepest search to finish an iteration (the main thread's on ties)
+        best = 0;
+        for(int i = 1; i < workers.length; i++)
+            if(workers[i].depth() > workers[best].depth())
+                best = i;
+        nanos = System.nanoTime() - start;
+        return workers[best].move();
+    }
+
+    //stops every thread as soon as possible (the search returns the moves found so far), including a search not yet begun
+    public void stop(){
+        for(Search w: workers)
+            w.stop();
+    }
+
+    //statistics of the last search: the total and per-thread nodes
+    public int threads(){ return workers.length;}
+    public long nodes(int thread){ return workers[thread].nodes();}
+    public long nodes(){
+        long total = 0;
+        for(Search w: workers)
+            total += w.nodes();
+        return total;
+    }
+    public long nodesPerSecond(){ return nanos == 0 ? 0 : nodes()*1000000000L/nanos;}
+    public String toString(){
+        StringBuilder s = new StringBuilder("depth " + workers[best].depth() + " (thread " + best + "), score " + workers[best].score() + ", "
+                + nodes() + " nodes in " + nanos/1000000 + " ms (" + nodesPerSecond() + " nodes/second), best " + Move.toString(workers[best].move())
+                + ", table " + table.usage()/10 + "% used; nodes per thread:");
+        for(Search w: workers)
+            s.append(' ').append(w.nodes());
+        return s.toString();
+    }
+
+    //runs one helper search until it is stopped (or finds a mate)
+    private static class Helper implements Runnable{
+        private Search search;
+        private Board position;
+        private long millis;
+        private int offset;
+        public Helper(Search s, Board b, long ms, int off){
+            search = s;
+            position = b;
+            millis = ms;
+            offset = off;
+        }
+        public void run(){ search.think(position, millis, offset, true);}
+    }
+}
@@ -1,51 +1,53 @@
-import java.util.ArrayList;
-
 public class Pawn extends GamePiece{
     //boolean for whether the pawn is white (defines direction of movement)
     private boolean white;
-    private int direction;
 
-    public ArrayList<Point> getMoves(ArrayList<GamePiece> friendPieces, ArrayList<GamePiece> foePieces){
-        ArrayList<Point> moves = new ArrayList<>();
+    //diagonal squares attacked by a white or black pawn on every square, computed once
+    private static final long[] WHITE_ATTACKS = stepTable(new int[][]{{1,-1},{-1,-1}});
+    private static final long[] BLACK_ATTACKS = stepTable(new int[][]{{1,1},{-1,1}});
+
+    //squares attacked by a pawn of a color on a square (the same squares hold the foe pawns that attack it)
+    public static long attacks(int sq, int color){
+        if(color == Board.WHITE)
+            return WHITE_ATTACKS[sq];
+        return BLACK_ATTACKS[sq];
+    }
+
+    public static long moves(Board board, int sq, int color){
+        long moves = 0;
 
-        //define direction of movement
+        //define direction of movement (white moves up the board)
         int inc;
-        if(white)
+        if(color == Board.WHITE)
             inc = -1;
         else
             inc = 1;
 
+        int x = sq & 7, y = (sq >>> 3) + inc;
+        if(!Board.onBoard(x, y))
+            return 0;
+
         //add point directly in front if empty, 2 in front if in original position and empty
-        Point testmv = new Point(getLocation()).incY(inc);
-        if (isEmpty(friendPieces, foePieces, testmv)){
-            moves.add(new Point(testmv));
-            if(((!white && getLocation().getY()==1) || (white && getLocation().getY()==6)) && isEmpty(friendPieces, foePieces, testmv.incY(inc)))
-                moves.add(new Point(testmv));
+        int front = Board.square(x, y);
+        if(board.isEmpty(front)){
+            moves |= 1L << front;
+            if(((color == Board.BLACK && y == 2) || (color == Board.WHITE && y == 5)) && board.isEmpty(front + 8*inc))
+                moves |= 1L << (front + 8*inc);
         }
 
         //add diagonals if enemies are found there
-        testmv = new Point(getLocation()).incY(inc).incX(1);
-        if (ChessGame.findPiece(foePieces, testmv) != null)
-            moves.add(new Point(testmv));
-
-        if (ChessGame.findPiece(foePieces, testmv.incX(-2)) != null)
-            moves.add(new Point(testmv));
+        moves |= attacks(sq, color) & board.occupancy(1 - color);
 
         return moves;
     }
-    //constructor (moves either up or down)
+    //constructor
     public Pawn(Point p, boolean wPiece){
         super(p);
         white = wPiece;
-        if(Math.random()>.5)
-            direction=1;
-        else
-            direction=-1;
     }
-    //various class methods for class identity (King size) (~1.5x king speed)
+    //various class methods for class identity
+    public boolean isWhite(){ return white;}
+    public int getType(){ return Board.PAWN;}
     public String getID(){ return "P";}
     public int offSet(){return 9;}
-    public void move(){getLocation().incY(direction);}
-    public int getWidth(){return 10;}
-    public int getHeight(){return 10;}
 }
\ No newline at end of file
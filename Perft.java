@@ -0,0 +1,134 @@
+/*  Perft: counts the leaf nodes of the legal move tree to a fixed depth, the standard check that a
+ *  move generator is both correct and fast. Runs headless (no window is made).
+ *
+ *      java Perft                        checks the reference positions below, failing on any mismatch
+ *      java Perft <depth> ["<fen>"] [divide]
+ *                                        counts from the starting position (or a FEN position),
+ *                                        optionally broken down per root move
+ *
+ *  Node counts and nodes/second are printed either way. The reference counts follow this game's
+ *  rules (no en passant, pawns always promote to queens, castling allowed whenever the king and rook
+ *  are home with a clear, unattacked path) and were taken from the original list-based generator.
+ */
+
+public class Perft {
+    //reference positions and their counts from depth 1 up
+    private static final String[] FENS = {
+        "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w - - 0 1",
+        "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w - - 0 1",
+        "n1n5/PPPk4/8/8/8/8/4Kppp/5N1N b - - 0 1",
+        "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+        "r3k2r/8/8/8/3pPp2/8/8/R3K1RR b - - 0 1"
+    };
+    private static final long[][] COUNTS = {
+        {20, 400, 8902, 197281, 4865351},
+        {48, 2037, 97718},
+        {15, 210, 3253},
+        {14, 191, 2810, 43087},
+        {27, 770, 19152}
+    };
+
+    //move buffers, one per depth, reused for every position at that depth
+    private int[][] buffers;
+
+    public Perft(int maxDepth){ buffers = new int[Math.max(maxDepth, 1)][Move.MAX_MOVES];}
+
+    //counts leaf nodes below a position to a depth (the last level is counted from the number of legal moves rather than played)
+    public long perft(Board board, int depth){
+        if(depth == 0)
+            return 1;
+
+        int[] moves = buffers[depth - 1];
+        int count = board.generateLegal(board.sideToMove(), moves, 0);
+        if(depth == 1)
+            return count;
+
+        long nodes = 0;
+        for(int i = 0; i < count; i++){
+            board.makeMove(moves[i]);
+            nodes += perft(board, depth - 1);
+            board.unmakeMove();
+        }
+        return nodes;
+    }
+
+    //prints the count below each root move, returning the total (the depth counts the root moves, so it is at least 1)
+    public long divide(Board board, int depth){
+        if(depth < 1)
+            throw new IllegalArgumentException("divide needs a depth of at least 1: " + depth);
+        int[] moves = new int[Move.MAX_MOVES];
+        int count = board.generateLegal(board.sideToMove(), moves, 0);
+        long total = 0;
+        for(int i = 0; i < count; i++){
+            board.makeMove(moves[i]);
+            long nodes = perft(board, depth - 1);
+            board.unmakeMove();
+            System.out.println(Move.toString(moves[i]) + ": " + nodes);
+            total += nodes;
+        }
+        return total;
+    }
+
+    public static void main(String[] args){
+        if(args.length == 0){
+            System.exit(suite() ? 0 : 1);
+            return;
+        }
+
+        int depth = Integer.parseInt(args[0]);
+        if(depth < 1){
+            System.out.println("usage: java Perft [<depth of at least 1> [\"<fen>\"] [divide]]");
+            System.exit(1);
+        }
+        boolean divide = false;
+        String fen = FENS[0];
+        for(int i = 1; i < args.length; i++)
+            if(args[i].equals("divide"))
+                divide = true;
+            else
+                fen = args[i];
+
+        Board board = Board.fromFen(fen);
+        Perft perft = new Perft(depth);
+        System.out.println("Perft from " + board.toFen());
+        long start = System.nanoTime();
+        long nodes;
+        if(divide)
+            nodes = perft.divide(board, depth);
+        else{
+            nodes = 0;
+            for(int d = 1; d <= depth; d++){
+                long begin = System.nanoTime();
+                nodes = perft.perft(board, d);
+                report("Depth " + d + ": ", nodes, System.nanoTime() - begin);
+            }
+        }
+        report("Total: ", nodes, System.nanoTime() - start);
+    }
+
+    //runs every reference position to its listed depths, returning whether every count matched
+    private static boolean suite(){
+        boolean passed = true;
+        for(int i = 0; i < FENS.length; i++){
+            Board board = Board.fromFen(FENS[i]);
+            Perft perft = new Perft(COUNTS[i].length);
+            System.out.println(FENS[i]);
+            for(int d = 1; d <= COUNTS[i].length; d++){
+                long start = System.nanoTime();
+                long nodes = perft.perft(board, d);
+                report("  depth " + d + ": ", nodes, System.nanoTime() - start);
+                if(nodes != COUNTS[i][d - 1]){
+                    System.out.println("  expected " + COUNTS[i][d - 1]);
+                    passed = false;
+                }
+            }
+        }
+        System.out.println(passed ? "All counts match." : "COUNTS DIFFER.");
+        return passed;
+    }
+
+    //prints a node count with the time taken and nodes per second
+    private static void report(String label, long nodes, long nanos){
+        System.out.printf("%s%d nodes in %.0f ms (%.0f nodes/second)%n", label, nodes, nanos/1e6, nodes/(nanos/1e9));
+    }
+}
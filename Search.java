@@ -0,0 +1,247 @@
+/*  Computer opponent: iterative-deepening alpha-beta search with a quiescence search on captures,
+ *  scored by Evaluation. Each iteration searches one ply deeper with the previous best move first,
+ *  until the time budget runs out; the move from the last finished iteration is played.
+ *
+ *  The search works on a copy of the position, so the board being painted is never touched, and
+ *  keeps one move buffer per ply so the search itself allocates nothing. Given a transposition table,
+ *  positions already searched deeply enough are cut off from it, and the best move it remembers is
+ *  tried first.
+ */
+
+public class Search {
+    //score bounds (mate scores are MATE less the number of plies to the mate) and the deepest ply searched
+    public static final int INFINITY = 1000000, MATE = 100000, MAX_PLY = 64;
+
+    //position being searched, transposition table (may be null), move buffers and ordering scores per ply
+    private Board board;
+    private TranspositionTable table;
+    private int[][] moves = new int[MAX_PLY][Move.MAX_MOVES];
+    private int[][] order = new int[MAX_PLY][Move.MAX_MOVES];
+
+    //time limit, whether this search has stopped (out of time, or ended by the ParallelSearch it belongs to), whether the searcher
+    //has been stopped from outside (for good: no stop() is ever undone), and statistics of the last search
+    private long deadline, nodes, nanos;
+    private volatile boolean stopped, cancelled;
+    private int bestMove, score, depth;
+
+    public Search(){}
+    public Search(TranspositionTable tt){ table = tt;}
+
+    //searches a position for up to a number of milliseconds, returning the best move found (0 if there are no legal moves)
+    public int search(Board position, long millis){
+        reset();
+        return think(position, millis, 0, false);
+    }
+
+    //starts a search with time left, and ends one early (only the caller running the searches does either, so neither loses a stop();
+    //a stopped searcher stays stopped whatever is reset)
+    void reset(){ stopped = false;}
+    void halt(){ stopped = true;}
+
+    //the search itself: helper threads of a ParallelSearch start deeper by an offset, so the threads spread over depths, and
+    //keep deepening until stopped rather than saving time
+    int think(Board position, long millis, int offset, boolean helper){
+        long start = System.nanoTime();
+        deadline = start + millis*1000000;
+        board = position.copy();
+        nodes = 0;
+        depth = 0;
+        score = 0;
+
+        int[] root = moves[0];
+        int count = board.generateLegal(board.sideToMove(), root, 0);
+        bestMove = count > 0 ? root[0] : 0;
+
+        //deepen until out of time, a forced mate is found, or there is only one move to play
+        for(int d = 1 + offset; d < MAX_PLY && count > 1; d++){
+            int s = searchRoot(root, count, d);
+            if(stopped)
+                break;
+            depth = d;
+            score = s;
+            if(Math.abs(s) > MATE - MAX_PLY || !helper && System.nanoTime() - start > (deadline - start)/2)
+                break;
+        }
+
+        nanos = System.nanoTime() - start;
+        return bestMove;
+    }
+
+    //stops a running search as soon as possible (the last finished iteration's move is returned), and any later search at its first node
+    public void stop(){ cancelled = true;}
+
+    //statistics of the last search
+    public int move(){ return bestMove;}
+    public int depth(){ return depth;}
+    public int score(){ return score;}
+    public long nodes(){ return nodes;}
+    public long nodesPerSecond(){ return nanos == 0 ? 0 : nodes*1000000000L/nanos;}
+    public String toString(){
+        return "depth " + depth + ", score " + score + ", " + nodes + " nodes in " + nanos/1000000 + " ms (" + nodesPerSecond() + " nodes/second), best " + Move.toString(bestMove);
+    }
+
+    //searches every root move to a depth with the best move so far first, updating the best move when the iteration finishes
+    private int searchRoot(int[] root, int count, int d){
+        for(int i = 0; i < count; i++)
+            if(root[i] == bestMove){
+                root[i] = root[0];
+                root[0] = bestMove;
+            }
+
+        int alpha = -INFINITY, best = root[0];
+        for(int i = 0; i < count; i++){
+            board.makeMove(root[i]);
+            int s = -alphaBeta(d - 1, 1, -INFINITY, -alpha);
+            board.unmakeMove();
+            if(stopped)
+                return 0;
+            if(s > alpha){
+                alpha = s;
+                best = root[i];
+            }
+        }
+        bestMove = best;
+        return alpha;
+    }
+
+    //negamax alpha-beta: returns the score of the position for the side to move, within the alpha-beta window
+    private int alphaBeta(int d, int ply, int alpha, int beta){
+        int color = board.sideToMove();
+        boolean inCheck = board.inCheck(color);
+
+        //look one ply further when in check, and past the horizon through captures only
+        if(inCheck)
+            d++;
+        if(d <= 0 || ply >= MAX_PLY - 1)
+            return quiesce(ply, alpha, beta);
+
+        if(tick())
+            return 0;
+
+        //50 moves without progress and repeated positions are draws
+        if(board.halfmoveClock() >= 50 || board.isRepetition())
+            return 0;
+
+        //use what is known of the position: a deep enough score that settles this window ends the search here
+        long entry = table == null ? 0 : table.probe(board.hash());
+        int hashMove = 0;
+        if(entry != 0){
+            hashMove = TranspositionTable.move(entry);
+            if(TranspositionTable.depth(entry) >= d){
+                int s = TranspositionTable.score(entry, ply), bound = TranspositionTable.bound(entry);
+                if(bound == TranspositionTable.EXACT)
+                    return s;
+                if(bound == TranspositionTable.LOWER && s >= beta)
+                    return beta;
+                if(bound == TranspositionTable.UPPER && s <= alpha)
+                    return alpha;
+            }
+        }
+
+        int[] list = moves[ply];
+        int count = board.generate(color, list, 0), legal = 0, best = 0, bound = TranspositionTable.UPPER;
+        score(list, order[ply], count, hashMove);
+        for(int i = 0; i < count; i++){
+            int move = next(list, order[ply], i, count);
+            board.makeMove(move);
+            if(board.inCheck(color)){
+                board.unmakeMove();
+                continue;
+            }
+            legal++;
+            int s = -alphaBeta(d - 1, ply + 1, -beta, -alpha);
+            board.unmakeMove();
+            if(stopped)
+                return 0;
+            if(s >= beta){
+                if(table != null)
+                    table.store(board.hash(), d, ply, TranspositionTable.LOWER, beta, move);
+                return beta;
+            }
+            if(s > alpha){
+                alpha = s;
+                best = move;
+                bound = TranspositionTable.EXACT;
+            }
+        }
+
+        //no legal moves is checkmate if in check, stalemate otherwise
+        if(legal == 0)
+            alpha = inCheck ? -MATE + ply : 0;
+        if(table != null)
+            table.store(board.hash(), d, ply, legal == 0 ? TranspositionTable.EXACT : bound, alpha, best);
+        return alpha;
+    }
+
+    //searches captures (and promotions) until the position is quiet, letting the side to move stand pat on the evaluation
+    private int quiesce(int ply, int alpha, int beta){
+        if(tick())
+            return 0;
+
+        int standPat = Evaluation.evaluate(board);
+        if(standPat >= beta)
+            return beta;
+        if(standPat > alpha)
+            alpha = standPat;
+        if(ply >= MAX_PLY - 1)
+            return alpha;
+
+        int color = board.sideToMove();
+        int[] list = moves[ply];
+        int count = board.generateCaptures(color, list, 0);
+        score(list, order[ply], count, 0);
+        for(int i = 0; i < count; i++){
+            int move = next(list, order[ply], i, count);
+            board.makeMove(move);
+            if(board.inCheck(color)){
+                board.unmakeMove();
+                continue;
+            }
+            int s = -quiesce(ply + 1, -beta, -alpha);
+            board.unmakeMove();
+            if(stopped)
+                return 0;
+            if(s >= beta)
+                return beta;
+            if(s > alpha)
+                alpha = s;
+        }
+        return alpha;
+    }
+
+    //counts a node, checking the clock every 2048 nodes (and for a stop() at every one), and returns whether the search should stop
+    private boolean tick(){
+        if(cancelled || (++nodes & 2047) == 0 && System.nanoTime() > deadline)
+            stopped = true;
+        return stopped;
+    }
+
+    //scores moves for ordering: the remembered best move, promotions, then captures of the most valuable piece by the least
+    //valuable attacker, then the rest
+    private static void score(int[] list, int[] scores, int count, int hashMove){
+        for(int i = 0; i < count; i++){
+            int move = list[i], s = 0;
+            if(move == hashMove)
+                s += 100000;
+            if(Move.isPromotion(move))
+                s += 10000;
+            if(Move.isCapture(move))
+                s += 1000 + Evaluation.VALUES[Move.captured(move)] - Move.type(move);
+            scores[i] = s;
+        }
+    }
+
+    //swaps the best-scored remaining move into place i and returns it
+    private static int next(int[] list, int[] scores, int i, int count){
+        int best = i;
+        for(int j = i + 1; j < count; j++)
+            if(scores[j] > scores[best])
+                best = j;
+        int move = list[best], s = scores[best];
+        list[best] = list[i];
+        scores[best] = scores[i];
+        list[i] = move;
+        scores[i] = s;
+        return move;
+    }
+}
@@ -0,0 +1,161 @@
+import java.io.*;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/*  Headless self-play: plays batches of games between two move selectors without a window, in
+ *  parallel on a fork-join pool, and writes one record per game. Games end by the same rules as in
+ *  the window (Board.status for white, then for black: checkmate, stalemate, or 50 moves without
+ *  a capture or pawn move), so a rule change can be tried over thousands of games.
+ *
+ *      java SelfPlay <games> <white> <black> [threads] [records file]
+ *
+ *  where a player is random or engine[:milliseconds per move] (20 by default). Game i's random
+ *  player is seeded from i, so random games are the same on every run. A record is the result, how
+ *  the game ended, the number of plies, then the moves:
+ *
+ *      0-1 checkmate 57 e2e4 g8f6 ...
+ */
+
+public class SelfPlay {
+    //chooses a move for the side to move (the position has at least one legal move, and mustn't be left changed)
+    public interface Player {
+        int choose(Board board);
+    }
+
+    //plays a uniformly random legal move
+    public static class RandomPlayer implements Player {
+        private Random random;
+        private int[] moves = new int[Move.MAX_MOVES];
+        public RandomPlayer(long seed){ random = new Random(seed);}
+        public int choose(Board board){
+            int count = board.generateLegal(board.sideToMove(), moves, 0);
+            return moves[random.nextInt(count)];
+        }
+    }
+
+    //plays the search engine's move for a fixed time per move
+    public static class EnginePlayer implements Player {
+        private Search search;
+        private long millis;
+        private TranspositionTable table;
+        public EnginePlayer(long ms){
+            millis = ms;
+            table = new TranspositionTable(1);
+            search = new Search(table);
+        }
+        public int choose(Board board){
+            table.newSearch();
+            return search.search(board, millis);
+        }
+    }
+
+    //makes a player from its name, seeded for a game
+    public static Player player(String name, long seed){
+        if(name.equals("random"))
+            return new RandomPlayer(seed);
+        if(name.startsWith("engine"))
+            return new EnginePlayer(name.contains(":") ? Long.parseLong(name.substring(name.indexOf(':') + 1)) : 20);
+        throw new IllegalArgumentException("unknown player: " + name);
+    }
+
+    //plays one game from the starting position, returning its record
+    public static String play(Player white, Player black){
+        Board board = Board.fromFen("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w - - 0 1");
+        StringBuilder moves = new StringBuilder();
+        int plies = 0;
+        while(true){
+            //white's state is checked first, as in the window (so a side left without moves ends the game even on the other's turn)
+            int loser = Board.WHITE, status = board.status(Board.WHITE);
+            if(status == Board.PLAYING){
+                loser = Board.BLACK;
+                status = board.status(Board.BLACK);
+            }
+            if(status != Board.PLAYING){
+                String result = status != Board.CHECKMATE ? "1/2-1/2" : loser == Board.WHITE ? "0-1" : "1-0";
+                String reason = status == Board.CHECKMATE ? "checkmate" : status == Board.STALEMATE ? "stalemate" : "fifty-moves";
+                return result + " " + reason + " " + plies + moves;
+            }
+
+            int move = (board.sideToMove() == Board.WHITE ? white : black).choose(board);
+            board.makeMove(move);
+            moves.append(' ').append(Move.toString(move));
+            plies++;
+        }
+    }
+
+    //plays a range of games, splitting it in half until it is small enough to play on one thread
+    @SuppressWarnings("serial")
+    private static class Games extends RecursiveAction {
+        private String[] records, names;
+        private int from, to;
+        public Games(String[] r, String[] n, int f, int t){
+            records = r;
+            names = n;
+            from = f;
+            to = t;
+        }
+        protected void compute(){
+            if(to - from <= 4){
+                for(int i = from; i < to; i++)
+                    records[i] = play(player(names[0], 2L*i), player(names[1], 2L*i + 1));
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Games(records, names, from, mid), new Games(records, names, mid, to));
+        }
+    }
+
+    //plays a batch of games on a number of threads, returning the records in game order
+    public static String[] playAll(int games, String white, String black, int threads){
+        String[] records = new String[games];
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try{
+            pool.invoke(new Games(records, new String[]{white, black}, 0, games));
+        }finally{
+            pool.shutdown();
+        }
+        return records;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if(args.length < 3){
+            System.out.println("usage: java SelfPlay <games> <white> <black> [threads] [records file]   (players: random, engine[:ms])");
+            System.exit(1);
+        }
+        int games = Integer.parseInt(args[0]);
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        //make each player once first, so a bad player name or -Dtt policy is reported before any game starts
+        player(args[1], 0);
+        player(args[2], 0);
+
+        long start = System.nanoTime();
+        String[] records = playAll(games, args[1], args[2], threads);
+        long nanos = System.nanoTime() - start;
+
+        //write the records, and tally results, endings and length
+        PrintStream out = args.length > 4 ? new PrintStream(new BufferedOutputStream(new FileOutputStream(args[4]))) : null;
+        int white = 0, black = 0, stalemates = 0, fifty = 0;
+        long plies = 0;
+        for(String r: records){
+            if(out != null)
+                out.println(r);
+            String[] parts = r.split(" ", 4);
+            if(parts[0].equals("1-0"))
+                white++;
+            else if(parts[0].equals("0-1"))
+                black++;
+            else if(parts[1].equals("stalemate"))
+                stalemates++;
+            else
+                fifty++;
+            plies += Integer.parseInt(parts[2]);
+        }
+        if(out != null)
+            out.close();
+
+        System.out.printf("%d games in %.1f s (%.1f games/second) on %d threads%n", games, nanos/1e9, games/(nanos/1e9), threads);
+        System.out.printf("white wins %d, black wins %d, stalemates %d, fifty-move draws %d, %.1f plies per game%n", white, black, stalemates, fifty, (double) plies/Math.max(1, games));
+    }
+}
@@ -0,0 +1,127 @@
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/*  Runs one bullet-stage tick for several arenas: each arena's pieces are moved (if it is running)
+ *  and then its own follow-up work is done (transfers and the collision grid, in BulletPanel). The
+ *  arenas share nothing, so each one is a task of its own on a fork-join pool, and a large arena's
+ *  moving is split further into chunks of pieces.
+ *
+ *  The result is the same as running the arenas one after the other: an arena only rolls random
+ *  numbers from its own generator, on its own task, in the same order (steer, then the follow-up),
+ *  and the chunks only move pieces, which rolls nothing. Below a threshold of pieces, or with one
+ *  thread, the tick just runs serially on the calling thread, since forking costs more than it saves.
+ */
+
+public class TickScheduler {
+    //pieces in all the arenas together under which a tick runs serially, and the most pieces of a type moved by one task
+    public static final int THRESHOLD = 8192, CHUNK = 4096;
+
+    private final ForkJoinPool pool;
+    private final int threshold;
+
+    //the tasks of the last tick run on the pool, run again (reinitialized) for the next tick of the same arenas, so ticking allocates nothing
+    private Tick last;
+
+    //makes a scheduler over a number of threads, running serially under a number of pieces
+    public TickScheduler(int threads, int threshold){
+        pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        this.threshold = threshold;
+    }
+    public TickScheduler(){ this(Runtime.getRuntime().availableProcessors(), THRESHOLD);}
+
+    //ticks each arena: moves its pieces if it is running, then runs its follow-up (which may be null)
+    //(the arrays are read as the tick runs, so a caller may keep them and change their entries between ticks)
+    public void tick(BulletArena[] arenas, boolean[] running, Runnable[] then){
+        int size = 0;
+        for(BulletArena a: arenas)
+            size += a.size();
+
+        if(pool == null || size < threshold){
+            for(int i = 0; i < arenas.length; i++){
+                if(running[i])
+                    arenas[i].move();
+                if(then[i] != null)
+                    then[i].run();
+            }
+            return;
+        }
+
+        invoke(arenas, running, then);
+    }
+
+    //runs a tick on the pool, with the last tick's tasks if it was of the same arenas (one tick at a time, since they are shared)
+    private synchronized void invoke(BulletArena[] arenas, boolean[] running, Runnable[] then){
+        if(last == null || last.arenas != arenas || last.running != running || last.then != then)
+            last = new Tick(arenas, running, then);
+        last.reinitialize();
+        pool.invoke(last);
+    }
+
+    //the whole tick: one task per arena
+    @SuppressWarnings("serial")
+    private static class Tick extends RecursiveAction {
+        private BulletArena[] arenas;
+        private boolean[] running;
+        private Runnable[] then;
+        private ArenaTick[] tasks;
+        public Tick(BulletArena[] a, boolean[] r, Runnable[] t){
+            arenas = a;
+            running = r;
+            then = t;
+            tasks = new ArenaTick[arenas.length];
+            for(int i = 0; i < arenas.length; i++)
+                tasks[i] = new ArenaTick(this, i);
+        }
+        protected void compute(){
+            for(ArenaTick t: tasks)
+                t.reinitialize();
+            invokeAll(tasks);
+        }
+    }
+
+    //one arena's tick: the queens steered, the pieces moved in chunks (the chunk tasks kept from tick to tick), then the follow-up
+    @SuppressWarnings("serial")
+    private static class ArenaTick extends RecursiveAction {
+        private Tick tick;
+        private int index;
+        private ArrayList<Chunk> chunks = new ArrayList<>();
+        public ArenaTick(Tick t, int i){
+            tick = t;
+            index = i;
+        }
+        protected void compute(){
+            BulletArena arena = tick.arenas[index];
+            if(tick.running[index]){
+                arena.steer();
+                int count = 0;
+                for(int type = Board.PAWN; type <= Board.QUEEN; type++)
+                    for(int from = 0, n = arena.count(type); from < n; from += CHUNK){
+                        if(count == chunks.size())
+                            chunks.add(new Chunk());
+                        chunks.get(count++).set(arena, type, from, Math.min(n, from + CHUNK));
+                    }
+                while(chunks.size() > count)
+                    chunks.remove(chunks.size() - 1);
+                invokeAll(chunks);
+            }
+            if(tick.then[index] != null)
+                tick.then[index].run();
+        }
+    }
+
+    //moves a range of one type of an arena's pieces
+    @SuppressWarnings("serial")
+    private static class Chunk extends RecursiveAction {
+        private BulletArena arena;
+        private int type, from, to;
+        public void set(BulletArena a, int ty, int f, int t){
+            arena = a;
+            type = ty;
+            from = f;
+            to = t;
+            reinitialize();
+        }
+        protected void compute(){ arena.move(type, from, to);}
+    }
+}
@@ -0,0 +1,125 @@
+/*  Transposition table: remembers what the search learned about positions it has seen (the depth
+ *  searched, whether the score is exact or a bound, the score and the best move), keyed by the
+ *  board's Zobrist hash, so a position reached again by another move order isn't searched twice.
+ *
+ *  Entries are two longs, the data and the hash XORed with the data, in a plain long[]. Buckets of
+ *  four entries take 64 bytes, one cache line, so a probe touches a single line. Any number of
+ *  search threads share one table without locks: an entry whose two halves were written by
+ *  different threads fails the XOR check on the next probe and reads as a miss.
+ *
+ *  Data layout (low bit first): move (21 bits), score (24 bits, signed), depth (8 bits), bound
+ *  (2 bits), age (8 bits). A bound is never 0, so data of 0 is an empty slot.
+ */
+
+public class TranspositionTable {
+    //bound types: the score is exact, at least the stored score (a beta cutoff), or at most the stored score (nothing beat alpha)
+    public static final int EXACT = 1, LOWER = 2, UPPER = 3;
+
+    //replacement policies: always keep the newest entry, or prefer to keep deeper entries from the current search
+    public static final int ALWAYS = 0, DEPTH = 1;
+
+    //entries per bucket (two longs each, so a bucket is one 64-byte cache line)
+    private static final int BUCKET = 4;
+
+    private final long[] table;
+    private final long mask;
+    private final int policy;
+    private volatile int age;
+
+    //makes a table of a size in megabytes (rounded down to a power of two buckets, at most 8 GB) with a replacement policy
+    public TranspositionTable(int megabytes, int policy){
+        long buckets = Long.highestOneBit(Math.min(1L << 27, Math.max(1, (long) megabytes*1024*1024/(BUCKET*16))));
+        table = new long[(int) buckets*BUCKET*2];
+        mask = buckets - 1;
+        this.policy = policy;
+    }
+    public TranspositionTable(int megabytes){ this(megabytes, policy(System.getProperty("tt", "depth")));}
+
+    //the replacement policy by name (java -Dtt=always or -Dtt=depth picks the policy of the tables made without one)
+    public static int policy(String name){
+        switch(name){
+            case "always":
+                return ALWAYS;
+            case "depth":
+                return DEPTH;
+            default:
+                throw new IllegalArgumentException("unknown transposition table policy: " + name + " (always or depth)");
+        }
+    }
+
+    //marks the start of a new search, so entries from earlier searches are replaced first
+    public void newSearch(){ age = (age + 1) & 0xFF;}
+
+    //empties the table
+    public void clear(){ java.util.Arrays.fill(table, 0);}
+
+    //returns the entry data for a position hash, or 0 if there is none
+    public long probe(long hash){
+        int base = (int) (hash & mask)*BUCKET*2;
+        for(int i = base; i < base + BUCKET*2; i += 2){
+            long data = table[i + 1];
+            if(data != 0 && (table[i] ^ data) == hash)
+                return data;
+        }
+        return 0;
+    }
+
+    //stores what was found about a position searched to a depth at a ply from the root (mate scores are kept relative to the position)
+    public void store(long hash, int depth, int ply, int bound, int score, int move){
+        if(score > Search.MATE - Search.MAX_PLY)
+            score += ply;
+        else if(score < -Search.MATE + Search.MAX_PLY)
+            score -= ply;
+
+        int base = (int) (hash & mask)*BUCKET*2, a = age, victim = base, worst = Integer.MAX_VALUE;
+        for(int i = base; i < base + BUCKET*2; i += 2){
+            long data = table[i + 1];
+
+            //the same position: keep the old entry only if it is deeper and from this search (but still keep its move if there's no new one)
+            if(data != 0 && (table[i] ^ data) == hash){
+                if(policy == DEPTH && bound != EXACT && age(data) == a && depth(data) > depth)
+                    return;
+                if(move == 0)
+                    move = move(data);
+                victim = i;
+                break;
+            }
+
+            //otherwise replace an empty slot, then entries from older searches (for the depth policy), then the shallowest
+            int value = data == 0 ? -1 : depth(data) + (policy == DEPTH && age(data) == a ? 256 : 0);
+            if(value < worst){
+                worst = value;
+                victim = i;
+            }
+        }
+
+        long data = (move & 0x1FFFFFL) | (score & 0xFFFFFFL) << 21 | (long) (depth & 0xFF) << 45 | (long) bound << 53 | (long) a << 55;
+        table[victim] = hash ^ data;
+        table[victim + 1] = data;
+    }
+
+    //returns the parts of an entry (the score adjusted back to a ply from the root)
+    public static int move(long data){ return (int) (data & 0x1FFFFF);}
+    public static int depth(long data){ return (int) (data >>> 45) & 0xFF;}
+    public static int bound(long data){ return (int) (data >>> 53) & 3;}
+    public static int score(long data, int ply){
+        int score = (int) (data << 19 >> 40);
+        if(score > Search.MATE - Search.MAX_PLY)
+            return score - ply;
+        if(score < -Search.MATE + Search.MAX_PLY)
+            return score + ply;
+        return score;
+    }
+    private static int age(long data){ return (int) (data >>> 55) & 0xFF;}
+
+    //returns the permille of sampled slots in use by the current search
+    public int usage(){
+        int used = 0, samples = Math.min(1000, table.length/2);
+        for(int i = 0; i < samples; i++){
+            long data = table[i*2 + 1];
+            if(data != 0 && age(data) == age)
+                used++;
+        }
+        return used*1000/samples;
+    }
+}
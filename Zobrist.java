@@ -0,0 +1,32 @@
+/*  Random 64-bit keys for Zobrist hashing. A position's hash is the XOR of the key for every
+ *  (color, type, square) holding a piece, plus SIDE when black is to move, so a move changes it
+ *  with a few XORs (the piece off its old square, onto its new one, and the side).
+ */
+
+public class Zobrist {
+    //keys per color, piece type and square, and the key for black to move
+    private static final long[][][] PIECES = new long[2][6][64];
+    public static final long SIDE;
+
+    //fill the keys from a fixed-seed splitmix64 sequence so hashes are the same on every run
+    static {
+        long seed = 0x9E3779B97F4A7C15L;
+        for(int c = 0; c < 2; c++)
+            for(int t = 0; t < 6; t++)
+                for(int sq = 0; sq < 64; sq++){
+                    seed += 0x9E3779B97F4A7C15L;
+                    PIECES[c][t][sq] = mix(seed);
+                }
+        SIDE = mix(seed + 0x9E3779B97F4A7C15L);
+    }
+
+    //returns the key for a piece of a color and type on a square
+    public static long key(int color, int type, int sq){ return PIECES[color][type][sq];}
+
+    //splitmix64 finalizer
+    private static long mix(long z){
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
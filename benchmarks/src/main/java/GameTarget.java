@@ -0,0 +1,109 @@
+import bench.Target;
+import java.util.ArrayList;
+import java.util.Random;
+
+//implements the benchmarked operations on the game's classes (see bench.Target for why this lives in the default package)
+public class GameTarget implements Target {
+    //chess position and its piece lists
+    private Board board;
+    private ArrayList<GamePiece> white = new ArrayList<>(), black = new ArrayList<>();
+
+    //bullet stage panel and kings
+    private BulletPanel bullets;
+    private King whiteKing, blackKing;
+
+    //play seeded random legal moves from the start (preferring captures) until the piece count is reached, restarting any game that ends first
+    public void position(int pieces){
+        Random random = new Random(pieces);
+        int[] moves = new int[Move.MAX_MOVES];
+        board = Board.standard();
+        while(Long.bitCount(board.occupancy()) > pieces){
+            int count = board.generateLegal(board.sideToMove(), moves, 0);
+            if(count == 0 || board.halfmoveClock() >= 50){
+                board = Board.standard();
+                continue;
+            }
+            int move = moves[random.nextInt(count)];
+            for(int i = 0; i < count && random.nextBoolean(); i++)
+                if(Move.isCapture(moves[i]))
+                    move = moves[i];
+            board.makeMove(move);
+        }
+
+        //set the pieces' locations from the board
+        board.listPieces(Board.WHITE, white);
+        board.listPieces(Board.BLACK, black);
+    }
+
+    //GamePiece.getMoves for every piece of one type on both sides
+    public long getMoves(int type){
+        long moves = 0;
+        for(int c = 0; c < 2; c++)
+            for(long s = board.pieces(c, type); s != 0; s &= s - 1)
+                moves ^= board.pieceAt(Long.numberOfTrailingZeros(s)).getMoves(board, c);
+        return moves;
+    }
+
+    //ChessGame.inCheck for both colors
+    public boolean inCheck(){ return board.inCheck(Board.WHITE) | board.inCheck(Board.BLACK);}
+
+    //ChessGame.trimMoves for every piece of the side to move, on a position not seen before (the board's legal move cache emptied first)
+    public long trimMoves(){
+        board.forgetLegal();
+        return trimMovesCached();
+    }
+
+    //the same, with the legal moves already cached for the position (as on every click after the first)
+    public long trimMovesCached(){
+        long moves = 0;
+        for(long s = board.occupancy(board.sideToMove()); s != 0; s &= s - 1)
+            moves ^= board.legalMoves(Long.numberOfTrailingZeros(s));
+        return moves;
+    }
+
+    //the rules half of ChessGame.checkmate (the game state for white, then for black), on a position not seen before
+    public boolean checkmate(){
+        board.forgetLegal();
+        return checkmateCached();
+    }
+
+    //the same, with the legal moves already cached for the position
+    public boolean checkmateCached(){ return board.status(Board.WHITE) != Board.PLAYING || board.status(Board.BLACK) != Board.PLAYING;}
+
+    //fill both arenas with an even mix of foe pieces (pawn, knight, bishop, rook, queen) at random locations
+    public void arena(int pieces){
+        whiteKing = new King(new Point(140, 100));
+        blackKing = new King(new Point(450, 100));
+        bullets = new BulletPanel(new ArrayList<>(), new ArrayList<>(), blackKing, whiteKing);
+        for(int i = 0; i < pieces; i++){
+            bullets.white().add(i % 5, 0);
+            bullets.black().add(i % 5, 0);
+        }
+        bullets.white().fill(bullets.whiteGrid());
+        bullets.black().fill(bullets.blackGrid());
+    }
+
+    //BulletPanel.updateGame as run in sudden death (both arenas moving)
+    public void updateGame(){ bullets.updateGame(60, true);}
+
+    //the king collision test for both arenas (the grids are filled by updateGame, or by arena here)
+    public int collide(){ return bullets.whiteGrid().collide(whiteKing, bullets.white()) + bullets.blackGrid().collide(blackKing, bullets.black());}
+
+    //piece type index from its name
+    public int type(String type){
+        switch(type){
+            case "PAWN":
+                return Board.PAWN;
+            case "KNIGHT":
+                return Board.KNIGHT;
+            case "BISHOP":
+                return Board.BISHOP;
+            case "ROOK":
+                return Board.ROOK;
+            case "QUEEN":
+                return Board.QUEEN;
+            default:
+                return Board.KING;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+//one bullet-stage tick (movement of both arenas) and the king collision test, by number of foe pieces per arena
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class BulletBenchmark {
+    @Param({"100", "1000", "10000", "50000"})
+    public int pieces;
+
+    private Target target;
+
+    @Setup
+    public void setUp(){
+        target = Target.create();
+        target.arena(pieces);
+    }
+
+    @Benchmark
+    public void updateGame(){ target.updateGame();}
+
+    @Benchmark
+    public int collide(){ return target.collide();}
+}
@@ -0,0 +1,32 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+//GamePiece.getMoves for every piece of one type, by piece type and number of pieces on the board
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoveGenBenchmark {
+    @Param({"PAWN", "KNIGHT", "BISHOP", "ROOK", "QUEEN", "KING"})
+    public String type;
+
+    @Param({"32", "24", "16", "8"})
+    public int pieces;
+
+    private Target target;
+    private int typeIndex;
+
+    @Setup
+    public void setUp(){
+        target = Target.create();
+        target.position(pieces);
+        typeIndex = target.type(type);
+    }
+
+    @Benchmark
+    public long getMoves(){ return target.getMoves(typeIndex);}
+}
@@ -0,0 +1,40 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+//check detection, legal move trimming and the game-end test, by number of pieces on the board
+//(trimming and the game-end test on a new position each time, and again with its legal moves already cached)
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RulesBenchmark {
+    @Param({"32", "24", "16", "8"})
+    public int pieces;
+
+    private Target target;
+
+    @Setup
+    public void setUp(){
+        target = Target.create();
+        target.position(pieces);
+    }
+
+    @Benchmark
+    public boolean inCheck(){ return target.inCheck();}
+
+    @Benchmark
+    public long trimMoves(){ return target.trimMoves();}
+
+    @Benchmark
+    public long trimMovesCached(){ return target.trimMovesCached();}
+
+    @Benchmark
+    public boolean checkmate(){ return target.checkmate();}
+
+    @Benchmark
+    public boolean checkmateCached(){ return target.checkmateCached();}
+}
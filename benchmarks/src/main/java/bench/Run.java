@@ -0,0 +1,28 @@
+package bench;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/*  Entry point of benchmarks.jar. Takes the usual JMH command line (e.g. a benchmark name regex, or
+ *  -p pieces=32), and unless another result file or format is given, writes the results as JSON to
+ *  results/jmh-<date>-<time>.json so runs can be compared over time.
+ */
+
+public class Run {
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cmd = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(cmd);
+        if(!cmd.getResultFormat().hasValue())
+            options.resultFormat(ResultFormatType.JSON);
+        if(!cmd.getResult().hasValue()){
+            new java.io.File("results").mkdirs();
+            options.result("results/jmh-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".json");
+        }
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,32 @@
+package bench;
+
+/*  The operations under benchmark. JMH needs benchmarks in a named package, but the game's classes
+ *  are in the default package, which named packages can't import, so GameTarget (in the default
+ *  package of this module) implements this interface and the benchmarks call through it.
+ */
+
+public interface Target {
+    //chess rules, on a position reached by seeded random play with about the given number of pieces left
+    void position(int pieces);
+    int type(String name);
+    long getMoves(int type);
+    boolean inCheck();
+    long trimMoves();
+    long trimMovesCached();
+    boolean checkmate();
+    boolean checkmateCached();
+
+    //bullet stage, with the given number of foe pieces in each arena
+    void arena(int pieces);
+    void updateGame();
+    int collide();
+
+    //returns the implementation in the default package
+    static Target create(){
+        try{
+            return (Target) Class.forName("GameTarget").getDeclaredConstructor().newInstance();
+        }catch(ReflectiveOperationException e){
+            throw new IllegalStateException("GameTarget not found on the classpath", e);
+        }
+    }
+}